@@ -0,0 +1,298 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+import problems.qbf.FlipIndex;
+import problems.qbf.IncrementalQBF;
+import problems.qbf.QBF;
+import problems.scqbf.IncrementalSC_QBF;
+import problems.scqbf.SC_QBF;
+import problems.scqbf.SC_QBF_Inverse;
+import solutions.BitSetSolution;
+
+/**
+ * Microbenchmarks of the QBF and SC-QBF evaluation kernels, over the bundled
+ * instances and random solutions of several densities (the probability of
+ * each element belonging to the solution).
+ *
+ * Usage: java benchmarks.KernelBenchmarks [regex] [-w warmup] [-i iterations]
+ * [-t millis] [-f forks], run from the directory containing instances/ (or with
+ * -Dinstances.dir=...). Only the benchmarks whose name and parameters match
+ * the regular expression are run.
+ *
+ * By default each benchmark runs in a JVM of its own (-f 1), with the same
+ * JVM options, so that the call site of the operation in
+ * {@link Microbench} only ever sees that benchmark and the results are
+ * comparable with each other. With -f 0 all benchmarks run in this JVM,
+ * which is faster but lets the call site become megamorphic, slowing down
+ * the benchmarks that run later.
+ */
+public class KernelBenchmarks {
+
+	private static final String[] QBF_INSTANCES = { "qbf020", "qbf040", "qbf060", "qbf080", "qbf100", "qbf200",
+			"qbf400" };
+
+	private static final String[] SCQBF_INSTANCES = { "n25p1", "n25p2", "n25p3", "n50p1", "n50p2", "n50p3",
+			"n100p1", "n100p2", "n100p3", "n200p1", "n200p2", "n200p3", "n400p1", "n400p2", "n400p3" };
+
+	private static final double[] DENSITIES = { 0.1, 0.5, 0.9 };
+
+	/**
+	 * the number of precomputed arguments cycled by each benchmark (a power of
+	 * two).
+	 */
+	private static final int ARGS = 1024;
+
+	private final Microbench bench;
+	private final Pattern filter;
+	private final String dir;
+
+	/**
+	 * the keys of the matching benchmarks, collected instead of running them
+	 * when the bench is null.
+	 */
+	private final List<String> keys = new ArrayList<>();
+
+	public KernelBenchmarks(Microbench bench, Pattern filter, String dir) {
+		this.bench = bench;
+		this.filter = filter;
+		this.dir = dir;
+	}
+
+	/**
+	 * Runs a benchmark if it matches the filter, or only collects its key if
+	 * there is no bench.
+	 */
+	private void run(String name, String params, DoubleSupplier op) {
+		String key = name + " " + params;
+		if (filter.matcher(key).find()) {
+			if (bench != null)
+				bench.run(name, params, op);
+			else
+				keys.add(key);
+		}
+	}
+
+	/**
+	 * Runs every benchmark of the instances.
+	 */
+	private void runAll() throws IOException {
+		for (String instance : QBF_INSTANCES) {
+			qbf(instance);
+		}
+		for (String instance : SCQBF_INSTANCES) {
+			scqbf(instance);
+		}
+	}
+
+	/**
+	 * Runs each matching benchmark in a JVM of its own, with the options of
+	 * this one.
+	 */
+	private static void fork(Pattern filter, String dir, int warmup, int iterations, long millis)
+			throws IOException, InterruptedException {
+		KernelBenchmarks listing = new KernelBenchmarks(null, filter, dir);
+		listing.runAll();
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (String key : listing.keys) {
+			List<String> command = new ArrayList<>();
+			command.add(java);
+			command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(KernelBenchmarks.class.getName());
+			command.add("-w");
+			command.add(String.valueOf(warmup));
+			command.add("-i");
+			command.add(String.valueOf(iterations));
+			command.add("-t");
+			command.add(String.valueOf(millis));
+			command.add("-f");
+			command.add("0");
+			command.add("^" + Pattern.quote(key) + "$");
+			int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+			if (status != 0)
+				throw new IOException("Benchmark " + key + " exited with status " + status);
+		}
+	}
+
+	/**
+	 * Draws a random solution.
+	 *
+	 * @param n
+	 *            the size of the domain.
+	 * @param density
+	 *            the probability of each element belonging to the solution.
+	 * @param rng
+	 *            the random number generator.
+	 * @return a solution, with at least one element in and one out of it.
+	 */
+	private static BitSetSolution randomSolution(int n, double density, Random rng) {
+		BitSetSolution sol = new BitSetSolution(n);
+		for (int i = 0; i < n; i++) {
+			if (rng.nextDouble() < density)
+				sol.add(i);
+		}
+		if (sol.isEmpty())
+			sol.add(rng.nextInt(n));
+		if (sol.size() == n)
+			sol.remove(Integer.valueOf(rng.nextInt(n)));
+		return sol;
+	}
+
+	/**
+	 * Draws elements in and out of a solution.
+	 *
+	 * @param sol
+	 *            the solution.
+	 * @param in
+	 *            whether the elements must belong to the solution.
+	 * @param rng
+	 *            the random number generator.
+	 * @return ARGS elements.
+	 */
+	private static int[] randomElements(BitSetSolution sol, boolean in, Random rng) {
+		int[] elems = new int[ARGS];
+		for (int k = 0; k < ARGS; k++) {
+			int e;
+			do {
+				e = rng.nextInt(sol.getDomainSize());
+			} while (sol.contains(e) != in);
+			elems[k] = e;
+		}
+		return elems;
+	}
+
+	private static Integer[] boxed(int[] elems) {
+		Integer[] boxed = new Integer[elems.length];
+		for (int k = 0; k < elems.length; k++) {
+			boxed[k] = elems[k];
+		}
+		return boxed;
+	}
+
+	/**
+	 * Benchmarks the QBF kernels of an instance.
+	 */
+	private void qbf(String instance) throws IOException {
+		QBF qbf = new QBF(dir + "/qbf/" + instance);
+		int n = qbf.getDomainSize();
+		Random rng = new Random(0);
+		for (double density : DENSITIES) {
+			String params = String.format("%s d=%.1f", instance, density);
+			BitSetSolution sol = randomSolution(n, density, rng);
+			int[] ins = randomElements(sol, false, rng);
+			int[] outs = randomElements(sol, true, rng);
+			int[] k = new int[1];
+
+			qbf.setVariables(sol);
+			run("QBF.evaluateQBF", params, () -> qbf.evaluateQBF());
+			run("QBF.evaluateInsertionQBF", params, () -> qbf.evaluateInsertionQBF(ins[k[0]++ & (ARGS - 1)]));
+			run("QBF.evaluateExchangeQBF", params, () -> {
+				int j = k[0]++ & (ARGS - 1);
+				return qbf.evaluateExchangeQBF(ins[j], outs[j]);
+			});
+
+			IncrementalQBF session = qbf.newSession();
+			session.bind(sol);
+			run("IncrementalQBF.evaluateInsertionQBF", params,
+					() -> session.evaluateInsertionQBF(ins[k[0]++ & (ARGS - 1)]));
+			run("IncrementalQBF.evaluateExchangeQBF", params, () -> {
+				int j = k[0]++ & (ARGS - 1);
+				return session.evaluateExchangeQBF(ins[j], outs[j]);
+			});
+			run("IncrementalQBF.flip", params, () -> {
+				int i = ins[k[0]++ & (ARGS - 1)];
+				session.flip(i);
+				session.flip(i);
+				return session.evaluateInsertionQBF(i);
+			});
+
+			/* One variable in eight stands for a tabu move */
+			IncrementalQBF indexed = qbf.newSession();
+			FlipIndex index = indexed.enableFlipIndex();
+			indexed.bind(sol);
+			run("IncrementalQBF.flip(indexed)", params, () -> {
+				int i = ins[k[0]++ & (ARGS - 1)];
+				indexed.flip(i);
+				indexed.flip(i);
+				return index.getDelta(i);
+			});
+			run("FlipIndex.findBest", params, () -> index.findBest((i, delta) -> (i & 7) != 0));
+		}
+	}
+
+	/**
+	 * Benchmarks the SC-QBF kernels of an instance.
+	 */
+	private void scqbf(String instance) throws IOException {
+		SC_QBF scqbf = new SC_QBF(dir + "/scqbf/" + instance + ".txt");
+		SC_QBF_Inverse inverse = new SC_QBF_Inverse(dir + "/scqbf/" + instance + ".txt");
+		int n = scqbf.getDomainSize();
+		Random rng = new Random(0);
+		for (double density : DENSITIES) {
+			String params = String.format("%s d=%.1f", instance, density);
+			BitSetSolution sol = randomSolution(n, density, rng);
+			Integer[] ins = boxed(randomElements(sol, false, rng));
+			Integer[] outs = boxed(randomElements(sol, true, rng));
+			int[] k = new int[1];
+
+			run("SC_QBF.isCoverValid", params, () -> scqbf.isCoverValid(sol) ? 1 : 0);
+			run("SC_QBF.isCoverValid(in,out)", params, () -> {
+				int j = k[0]++ & (ARGS - 1);
+				return scqbf.isCoverValid(sol, ins[j], outs[j]) ? 1 : 0;
+			});
+			run("SC_QBF_Inverse.evaluateExchangeCost", params, () -> {
+				int j = k[0]++ & (ARGS - 1);
+				return inverse.evaluateExchangeCost(ins[j], outs[j], sol);
+			});
+
+			IncrementalSC_QBF session = inverse.newSession();
+			session.bind(sol);
+			run("IncrementalSC_QBF.evaluateExchange", params, () -> {
+				int j = k[0]++ & (ARGS - 1);
+				return session.evaluateExchange(ins[j], outs[j]);
+			});
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String regex = "";
+		int warmup = 5, iterations = 10, forks = 1;
+		long millis = 100;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-w":
+				warmup = Integer.parseInt(args[++i]);
+				break;
+			case "-i":
+				iterations = Integer.parseInt(args[++i]);
+				break;
+			case "-t":
+				millis = Long.parseLong(args[++i]);
+				break;
+			case "-f":
+				forks = Integer.parseInt(args[++i]);
+				break;
+			default:
+				regex = args[i];
+			}
+		}
+
+		Pattern filter = Pattern.compile(regex);
+		String dir = System.getProperty("instances.dir", "instances");
+		if (forks > 0) {
+			fork(filter, dir, warmup, iterations, millis);
+		} else {
+			new KernelBenchmarks(new Microbench(warmup, iterations, millis), filter, dir).runAll();
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Minimal microbenchmark harness. Each benchmark is an operation returning a
+ * double, which is run in timed batches after a warmup phase. The harness
+ * reports the average time per operation and the number of bytes allocated
+ * per operation by the benchmark thread, as given by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ *
+ * The results of the operations are consumed by the harness, so that the JIT
+ * compiler cannot discard them. The measured loop itself allocates nothing,
+ * hence any allocation reported comes from the operation.
+ *
+ * Every benchmark calls its operation from the same site in
+ * {@link #runBatch(DoubleSupplier, long)}. Once several operations went
+ * through it in a JVM, the call is dispatched megamorphically, and the later
+ * benchmarks are slower than they would be on their own. Results are only
+ * comparable across benchmarks run in separate JVMs, as done by default by
+ * {@link KernelBenchmarks}.
+ */
+public class Microbench {
+
+	/**
+	 * Result of a benchmark.
+	 */
+	public static class Result {
+
+		public final String name;
+		public final String params;
+		public final double nsPerOp;
+		public final double nsPerOpError;
+		public final double bytesPerOp;
+
+		public Result(String name, String params, double nsPerOp, double nsPerOpError, double bytesPerOp) {
+			this.name = name;
+			this.params = params;
+			this.nsPerOp = nsPerOp;
+			this.nsPerOpError = nsPerOpError;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-40s %-28s %12.1f +- %8.1f ns/op %12.1f B/op", name, params, nsPerOp,
+					nsPerOpError, bytesPerOp);
+		}
+
+	}
+
+	/**
+	 * the number of warmup iterations.
+	 */
+	private final int warmupIterations;
+
+	/**
+	 * the number of measurement iterations.
+	 */
+	private final int measurementIterations;
+
+	/**
+	 * the target duration of each iteration, in nanoseconds.
+	 */
+	private final long iterationNanos;
+
+	/**
+	 * the allocation counter of the JVM, or null if it is not available.
+	 */
+	private final com.sun.management.ThreadMXBean allocations;
+
+	/**
+	 * the sink of the results of the operations.
+	 */
+	private static volatile double sink;
+
+	/**
+	 * Constructor for the Microbench class.
+	 *
+	 * @param warmupIterations
+	 *            The number of warmup iterations.
+	 * @param measurementIterations
+	 *            The number of measurement iterations.
+	 * @param iterationMillis
+	 *            The target duration of each iteration, in milliseconds.
+	 */
+	public Microbench(int warmupIterations, int measurementIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationNanos = iterationMillis * 1_000_000L;
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			this.allocations = (com.sun.management.ThreadMXBean) bean;
+			this.allocations.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			this.allocations = null;
+		}
+	}
+
+	/**
+	 * Runs a benchmark.
+	 *
+	 * @param name
+	 *            The name of the benchmark.
+	 * @param params
+	 *            A description of the parameters of the benchmark.
+	 * @param op
+	 *            The operation being measured.
+	 * @return The result of the benchmark.
+	 */
+	public Result run(String name, String params, DoubleSupplier op) {
+
+		/* Calibrates the batch size to the duration of an iteration */
+		long batch = 1;
+		while (true) {
+			long start = System.nanoTime();
+			runBatch(op, batch);
+			long elapsed = System.nanoTime() - start;
+			if (elapsed >= iterationNanos / 10 || batch >= (1L << 40))
+				break;
+			batch *= 2;
+		}
+		batch = Math.max(1, batch * 10);
+
+		for (int i = 0; i < warmupIterations; i++) {
+			runBatch(op, batch);
+		}
+
+		double[] nsPerOp = new double[measurementIterations];
+		long totalBytes = 0;
+		long totalOps = 0;
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < measurementIterations; i++) {
+			long bytesBefore = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+			long start = System.nanoTime();
+			runBatch(op, batch);
+			long elapsed = System.nanoTime() - start;
+			long bytesAfter = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+			nsPerOp[i] = (double) elapsed / batch;
+			totalBytes += bytesAfter - bytesBefore;
+			totalOps += batch;
+		}
+
+		double mean = 0;
+		for (double v : nsPerOp) {
+			mean += v;
+		}
+		mean /= nsPerOp.length;
+		double var = 0;
+		for (double v : nsPerOp) {
+			var += (v - mean) * (v - mean);
+		}
+		double error = nsPerOp.length > 1 ? Math.sqrt(var / (nsPerOp.length - 1)) : 0;
+		double bytesPerOp = allocations != null ? (double) totalBytes / totalOps : Double.NaN;
+
+		Result result = new Result(name, params, mean, error, bytesPerOp);
+		System.out.println(result);
+		return result;
+	}
+
+	/**
+	 * Runs an operation a number of times, consuming its results.
+	 *
+	 * @param op
+	 *            The operation.
+	 * @param count
+	 *            The number of runs.
+	 */
+	private static void runBatch(DoubleSupplier op, long count) {
+		double acc = 0;
+		for (long k = 0; k < count; k++) {
+			acc += op.getAsDouble();
+		}
+		sink = acc;
+	}
+
+}
@@ -0,0 +1,368 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.Termination;
+import problems.qbf.IncrementalQBF;
+import problems.qbf.QBF;
+import problems.qbf.solvers.TS_QBF;
+import problems.scqbf.IncrementalSC_QBF;
+import problems.scqbf.SC_QBF_Inverse;
+import problems.scqbf.solvers.ExperimentExecutor;
+import problems.scqbf.solvers.TS_SC_QBF;
+
+/**
+ * End-to-end throughput benchmarks of TS_QBF and TS_SC_QBF. Every bundled
+ * instance is solved under each search configuration with a fixed iteration
+ * budget (and no other stopping criterion, e.g., the no-improvement and time
+ * limits of TS_SC_QBF), and the suite reports iterations per second, evaluated moves per
+ * second and bytes allocated per iteration (median of the measured runs).
+ *
+ * Moves are counted by sessions that wrap the cost variation queries of
+ * {@link IncrementalQBF}; the suite runs the searches sequentially.
+ *
+ * Usage: java benchmarks.SolverBenchmarks [regex] [-n iterations]
+ * [-r runs] [-o results.csv] [-b baseline.csv] [-x threshold], run from the
+ * directory containing instances/ (or with -Dinstances.dir=...). Results are
+ * written as CSV to the file given by -o. When a baseline written by a
+ * previous run is given by -b, each benchmark whose iterations per second
+ * dropped, or whose bytes per iteration grew, by more than the threshold
+ * (default 0.10, i.e., 10%) is reported as a regression, and the exit status
+ * is 1.
+ */
+public class SolverBenchmarks {
+
+	private static final String[] QBF_INSTANCES = { "qbf020", "qbf040", "qbf060", "qbf080", "qbf100", "qbf200",
+			"qbf400" };
+
+	private static final String[] SCQBF_INSTANCES = { "n25p1", "n25p2", "n25p3", "n50p1", "n50p2", "n50p3",
+			"n100p1", "n100p2", "n100p3", "n200p1", "n200p2", "n200p3", "n400p1", "n400p2", "n400p3" };
+
+	private static final String[] QBF_STRATEGIES = { "default", "intensificationRestart", "diversificationRestart",
+			"strategicOscillation" };
+
+	private static final int[] QBF_TENURES = { 7, 15 };
+
+	/**
+	 * the CSV header of the results and baseline files.
+	 */
+	private static final String HEADER = "Solver,Instance,Configuration,Iterations,ItersPerSec,MovesPerSec,BytesPerIter";
+
+	/**
+	 * A session of TS_QBF counting the evaluated moves.
+	 */
+	private static class CountingQBFSession extends IncrementalQBF {
+
+		long moves;
+
+		CountingQBFSession(QBF qbf) {
+			super(qbf, true);
+		}
+
+		@Override
+		public double evaluateInsertion(Integer elem) {
+			moves++;
+			return super.evaluateInsertion(elem);
+		}
+
+		@Override
+		public double evaluateRemoval(Integer elem) {
+			moves++;
+			return super.evaluateRemoval(elem);
+		}
+
+		@Override
+		public double evaluateExchange(Integer elemIn, Integer elemOut) {
+			moves++;
+			return super.evaluateExchange(elemIn, elemOut);
+		}
+
+	}
+
+	/**
+	 * A session of TS_SC_QBF counting the evaluated moves, which are priced
+	 * by the primitive queries.
+	 */
+	private static class CountingSCQBFSession extends IncrementalSC_QBF {
+
+		long moves;
+
+		CountingSCQBFSession(SC_QBF_Inverse scqbf) {
+			super(scqbf, true);
+		}
+
+		@Override
+		public double evaluateInsertionQBF(int i) {
+			moves++;
+			return super.evaluateInsertionQBF(i);
+		}
+
+		@Override
+		public double evaluateRemovalQBF(int i) {
+			moves++;
+			return super.evaluateRemovalQBF(i);
+		}
+
+		@Override
+		public double evaluateExchangeQBF(int in, int out) {
+			moves++;
+			return super.evaluateExchangeQBF(in, out);
+		}
+
+	}
+
+	/**
+	 * A measurement of one benchmark.
+	 */
+	private static class Measurement {
+
+		final String key;
+		final long iterations;
+		final double itersPerSec;
+		final double movesPerSec;
+		final double bytesPerIter;
+
+		Measurement(String key, long iterations, double itersPerSec, double movesPerSec, double bytesPerIter) {
+			this.key = key;
+			this.iterations = iterations;
+			this.itersPerSec = itersPerSec;
+			this.movesPerSec = movesPerSec;
+			this.bytesPerIter = bytesPerIter;
+		}
+
+		String toCsv() {
+			return String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%.1f", key, iterations, itersPerSec, movesPerSec,
+					bytesPerIter);
+		}
+
+		static Measurement fromCsv(String line) {
+			String[] f = line.split(",");
+			return new Measurement(f[0] + "," + f[1] + "," + f[2], Long.parseLong(f[3]), Double.parseDouble(f[4]),
+					Double.parseDouble(f[5]), Double.parseDouble(f[6]));
+		}
+
+	}
+
+	/**
+	 * A run of a benchmark.
+	 */
+	@FunctionalInterface
+	private interface Run {
+
+		/**
+		 * Creates and solves a search.
+		 *
+		 * @return {iterations, moves, nanoseconds, bytes}
+		 */
+		long[] execute() throws IOException;
+
+	}
+
+	private final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+	private final Pattern filter;
+	private final String dir;
+	private final int iterations;
+	private final int runs;
+	private final List<Measurement> results = new ArrayList<>();
+
+	public SolverBenchmarks(Pattern filter, String dir, int iterations, int runs) {
+		this.filter = filter;
+		this.dir = dir;
+		this.iterations = iterations;
+		this.runs = runs;
+	}
+
+	/**
+	 * Solves a search for exactly the iteration budget, with no other stopping
+	 * criterion, measuring its time and allocation (but not the loading of the
+	 * instance).
+	 */
+	private long[] measure(AbstractTS<Integer> ts, LongSupplier moves) {
+		ts.verbose = false;
+		long threadId = Thread.currentThread().getId();
+		long bytes = allocations.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		ts.solve(new Termination().setMaxIterations(iterations));
+		long elapsed = System.nanoTime() - start;
+		bytes = allocations.getThreadAllocatedBytes(threadId) - bytes;
+		return new long[] { ts.getIterationsPerformed(), moves.getAsLong(), elapsed, bytes };
+	}
+
+	/**
+	 * Runs a benchmark once for warmup and then the number of measured runs, and
+	 * records the median of each metric.
+	 */
+	private void benchmark(String key, Run run) throws IOException {
+		if (!filter.matcher(key).find())
+			return;
+		run.execute();
+		double[] ips = new double[runs], mps = new double[runs], bpi = new double[runs];
+		long iters = 0;
+		for (int r = 0; r < runs; r++) {
+			long[] m = run.execute();
+			iters = m[0];
+			double seconds = m[2] / 1e9;
+			ips[r] = m[0] / seconds;
+			mps[r] = m[1] / seconds;
+			bpi[r] = (double) m[3] / Math.max(1, m[0]);
+		}
+		Measurement measurement = new Measurement(key, iters, median(ips), median(mps), median(bpi));
+		results.add(measurement);
+		System.out.println(measurement.toCsv());
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int mid = sorted.length / 2;
+		return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+	}
+
+	/**
+	 * Benchmarks TS_QBF on an instance.
+	 */
+	private void qbf(String instance) throws IOException {
+		String file = dir + "/qbf/" + instance;
+		for (boolean best : new boolean[] { false, true }) {
+			for (int tenure : QBF_TENURES) {
+				for (String strategy : QBF_STRATEGIES) {
+					String config = (best ? "best" : "first") + "/t" + tenure + "/" + strategy;
+					benchmark("TS_QBF," + instance + "," + config, () -> {
+						CountingQBFSession[] counting = new CountingQBFSession[1];
+						TS_QBF ts = new TS_QBF(tenure, iterations, file, best, strategy) {
+							@Override
+							public IncrementalQBF makeSession() {
+								return counting[0] = new CountingQBFSession((QBF) ObjFunction);
+							}
+						};
+						return measure(ts, () -> counting[0].moves);
+					});
+				}
+			}
+		}
+	}
+
+	/**
+	 * Benchmarks TS_SC_QBF on an instance.
+	 */
+	private void scqbf(String instance) throws IOException {
+		String file = dir + "/scqbf/" + instance + ".txt";
+		for (ExperimentExecutor.Configuration config : TS_SC_QBF.defaultConfigurations()) {
+			benchmark("TS_SC_QBF," + instance + "," + config.name, () -> {
+				CountingSCQBFSession[] counting = new CountingSCQBFSession[1];
+				TS_SC_QBF ts = new TS_SC_QBF(new SC_QBF_Inverse(file), config.tenure, iterations, config.strategy,
+						config.method) {
+					@Override
+					public IncrementalSC_QBF makeSession() {
+						return counting[0] = new CountingSCQBFSession((SC_QBF_Inverse) ObjFunction);
+					}
+				};
+				return measure(ts, () -> counting[0].moves);
+			});
+		}
+	}
+
+	/**
+	 * Writes the results as CSV.
+	 */
+	private void write(String filename) throws IOException {
+		try (PrintWriter out = new PrintWriter(new FileWriter(filename))) {
+			out.println(HEADER);
+			for (Measurement m : results) {
+				out.println(m.toCsv());
+			}
+		}
+	}
+
+	/**
+	 * Compares the results with a baseline.
+	 *
+	 * @return the number of regressions.
+	 */
+	private int compare(String filename, double threshold) throws IOException {
+		Map<String, Measurement> baseline = new LinkedHashMap<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(filename))) {
+			String line = in.readLine(); // header
+			while ((line = in.readLine()) != null) {
+				if (!line.isEmpty()) {
+					Measurement m = Measurement.fromCsv(line);
+					baseline.put(m.key, m);
+				}
+			}
+		}
+		int regressions = 0;
+		for (Measurement m : results) {
+			Measurement base = baseline.get(m.key);
+			if (base == null)
+				continue;
+			boolean slower = m.itersPerSec < base.itersPerSec * (1 - threshold);
+			// a few bytes per iteration are noise (e.g., boxing caches)
+			boolean heavier = m.bytesPerIter > base.bytesPerIter * (1 + threshold) + 64;
+			if (slower || heavier) {
+				regressions++;
+				System.out.printf(Locale.ROOT, "REGRESSION %s: %.1f -> %.1f iters/s, %.1f -> %.1f B/iter%n", m.key,
+						base.itersPerSec, m.itersPerSec, base.bytesPerIter, m.bytesPerIter);
+			}
+		}
+		System.out.println(regressions + " regression(s) against " + filename);
+		return regressions;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String regex = "";
+		int iterations = 200, runs = 3;
+		String output = "bench-results.csv", baseline = null;
+		double threshold = 0.10;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-n":
+				iterations = Integer.parseInt(args[++i]);
+				break;
+			case "-r":
+				runs = Integer.parseInt(args[++i]);
+				break;
+			case "-o":
+				output = args[++i];
+				break;
+			case "-b":
+				baseline = args[++i];
+				break;
+			case "-x":
+				threshold = Double.parseDouble(args[++i]);
+				break;
+			default:
+				regex = args[i];
+			}
+		}
+
+		SolverBenchmarks benchmarks = new SolverBenchmarks(Pattern.compile(regex),
+				System.getProperty("instances.dir", "instances"), iterations, runs);
+		System.out.println(HEADER);
+		for (String instance : QBF_INSTANCES) {
+			benchmarks.qbf(instance);
+		}
+		for (String instance : SCQBF_INSTANCES) {
+			benchmarks.scqbf(instance);
+		}
+		benchmarks.write(output);
+		if (baseline != null && benchmarks.compare(baseline, threshold) > 0) {
+			System.exit(1);
+		}
+	}
+
+}
@@ -3,10 +3,12 @@
  */
 package metaheuristics.tabusearch;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import problems.EvaluationSession;
 import problems.Evaluator;
 import solutions.Solution;
 
@@ -21,20 +23,30 @@ public abstract class AbstractTS<E> {
 
 	/**
 	 * flag that indicates whether the code should print more information on
-	 * screen
+	 * screen, i.e., every improvement of the best solution (see
+	 * {@link ImprovementListener#printing()}). Off by default, so that
+	 * concurrent searches do not interleave their output.
 	 */
-	public static boolean verbose = true;
+	public boolean verbose = false;
 
 	/**
-	 * a random number generator
+	 * a random number generator, owned by this search so that concurrent
+	 * searches neither interfere nor lose reproducibility (see
+	 * {@link #setSeed(long)}).
 	 */
-	static Random rng = new Random(0);
+	protected Random rng = new Random(0);
 
 	/**
 	 * the objective function being optimized
 	 */
 	protected Evaluator<E> ObjFunction;
 
+	/**
+	 * the evaluation session bound to the incumbent solution {@link #sol}, used
+	 * to evaluate and apply moves incrementally.
+	 */
+	protected EvaluationSession<E> session;
+
 	/**
 	 * the best solution cost
 	 */
@@ -76,9 +88,61 @@ public abstract class AbstractTS<E> {
 	protected ArrayList<E> RCL;
 	
 	/**
-	 * the Tabu List of elements to enter the solution.
+	 * the Tabu List, i.e., the short term memory of the elements that are
+	 * forbidden to enter or leave the solution.
+	 */
+	protected TabuMemory TL;
+
+	/**
+	 * the number of threads used to scan neighborhoods in best-improving
+	 * searches, 1 meaning a sequential scan.
+	 */
+	protected int parallelism = 1;
+
+	/**
+	 * the greediness of the constructive heuristic, from 0 (purely greedy) to
+	 * 1 (purely random), see {@link #setAlpha(double)}.
+	 */
+	protected double alpha = 0.0;
+
+	/**
+	 * the metrics collected by the search, or null if disabled (see
+	 * {@link #setMetrics(SearchMetrics)}).
 	 */
-	protected ArrayDeque<E> TL;
+	protected SearchMetrics metrics;
+
+	/**
+	 * the listeners notified of the improvements of {@link #bestSol}.
+	 */
+	private final List<ImprovementListener<E>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * the reason why the last search stopped, or null if none ran.
+	 */
+	private StopReason stopReason;
+
+	/**
+	 * the number of iterations performed by the last search.
+	 */
+	private long iterationsPerformed;
+
+	/**
+	 * the insertion cost of each candidate of {@link #CL}, in the same order,
+	 * computed once per step of the constructive heuristic.
+	 */
+	private double[] candidateCosts = new double[0];
+
+	/**
+	 * the position in {@link #CL} of each candidate of {@link #RCL}.
+	 */
+	private int[] rclPositions = new int[0];
+
+	/**
+	 * the engine scanning the neighborhoods, created on demand by
+	 * {@link #getNeighborhood()}. Its worker threads are released at the end
+	 * of each solve.
+	 */
+	private ParallelNeighborhood neighborhood;
 
 	/**
 	 * Creates the Candidate List, which is an ArrayList of candidate elements
@@ -97,13 +161,23 @@ public abstract class AbstractTS<E> {
 	public abstract ArrayList<E> makeRCL();
 	
 	/**
-	 * Creates the Tabu List, which is an ArrayDeque of the Tabu
-	 * candidate elements. The number of iterations a candidate
-	 * is considered tabu is given by the Tabu Tenure {@link #tenure}
+	 * Creates the Tabu List, which is a {@link TabuMemory} recording, for
+	 * each candidate element, until which iteration it is considered tabu.
+	 * The number of iterations a candidate is considered tabu is given by the
+	 * Tabu Tenure {@link #tenure}
 	 * 
 	 * @return The Tabu List.
 	 */
-	public abstract ArrayDeque<E> makeTL();
+	public abstract TabuMemory makeTL();
+
+	/**
+	 * Creates the evaluation session for the objective function
+	 * {@link #ObjFunction}. The session is bound to the incumbent solution
+	 * before being used.
+	 * 
+	 * @return A new evaluation session.
+	 */
+	public abstract EvaluationSession<E> makeSession();
 
 	/**
 	 * Updates the Candidate List according to the incumbent solution
@@ -148,10 +222,109 @@ public abstract class AbstractTS<E> {
 		this.iterations = iterations;
 	}
 
+	/**
+	 * Reseeds the random number generator of this search. Searches with the
+	 * same parameters and seed perform the same sequence of moves.
+	 * 
+	 * @param seed
+	 *            The seed of the random number generator.
+	 */
+	public void setSeed(long seed) {
+		rng = new Random(seed);
+	}
+
+	/**
+	 * Sets the number of threads used to scan neighborhoods in best-improving
+	 * searches. The move selected does not depend on the number of threads.
+	 * 
+	 * @param parallelism
+	 *            The number of threads, 1 meaning a sequential scan.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+		if (neighborhood != null) {
+			neighborhood.shutdown();
+			neighborhood = null;
+		}
+	}
+
+	/**
+	 * Gives the number of threads used to scan neighborhoods.
+	 * 
+	 * @return The number of threads, 1 meaning a sequential scan.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the greediness of the constructive heuristic. At each step, the
+	 * Restricted Candidate List holds the candidates whose insertion cost is
+	 * at most min + alpha*(max - min), where min and max are the lowest and
+	 * highest costs among the candidates, and one of them is drawn at random.
+	 * 
+	 * @param alpha
+	 *            The greediness, from 0, in which case only the best
+	 *            candidates are drawn (the default), to 1, in which case every
+	 *            candidate may be drawn.
+	 */
+	public void setAlpha(double alpha) {
+		if (!(alpha >= 0.0 && alpha <= 1.0))
+			throw new IllegalArgumentException("alpha must be in [0, 1]: " + alpha);
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Gives the greediness of the constructive heuristic.
+	 * 
+	 * @return The greediness, from 0 (purely greedy) to 1 (purely random).
+	 */
+	public double getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Sets the metrics collected by the search, which may be shared with
+	 * other searches. Metrics are disabled by default, in which case they
+	 * cost next to nothing.
+	 * 
+	 * @param metrics
+	 *            The metrics, or null to disable them.
+	 */
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Gives the metrics collected by the search.
+	 * 
+	 * @return The metrics, or null if disabled.
+	 */
+	public SearchMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Gives the engine scanning the neighborhoods, created with the current
+	 * {@link #parallelism} on the first call.
+	 * 
+	 * @return The neighborhood engine.
+	 */
+	protected ParallelNeighborhood getNeighborhood() {
+		if (neighborhood == null)
+			neighborhood = new ParallelNeighborhood(parallelism);
+		return neighborhood;
+	}
+
 	/**
 	 * The TS constructive heuristic, which is responsible for building a
-	 * feasible solution by selecting in a greedy fashion, candidate
-	 * elements to enter the solution.
+	 * feasible solution by selecting in a greedy fashion (randomized by
+	 * {@link #alpha}), candidate elements to enter the solution. The cost
+	 * variations come from the session, which is updated incrementally after
+	 * each insertion, so every candidate is evaluated once per step, in O(1),
+	 * and a step costs O(n) besides the update of the session.
 	 * 
 	 * @return A feasible solution to the problem being minimized.
 	 */
@@ -160,44 +333,61 @@ public abstract class AbstractTS<E> {
 		CL = makeCL();
 		RCL = makeRCL();
 		sol = createEmptySol();
+		ObjFunction.evaluate(sol);
+		session = makeSession();
+		session.bind(sol);
 		cost = Double.POSITIVE_INFINITY;
 
 		/* Main loop, which repeats until the stopping criteria is reached. */
 		while (!constructiveStopCriteria()) {
 
-			Double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
+			double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
 			cost = sol.cost;
 			updateCL();
 
 			/*
 			 * Explore all candidate elements to enter the solution, saving the
-			 * highest and lowest cost variation achieved by the candidates.
+			 * cost variation of each one and the highest and lowest cost
+			 * variations achieved. The session answers each evaluation in O(1).
 			 */
-			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, sol);
+			int size = CL.size();
+			if (candidateCosts.length < size) {
+				candidateCosts = new double[size];
+				rclPositions = new int[size];
+			}
+			for (int k = 0; k < size; k++) {
+				double deltaCost = session.evaluateInsertion(CL.get(k));
+				candidateCosts[k] = deltaCost;
 				if (deltaCost < minCost)
 					minCost = deltaCost;
 				if (deltaCost > maxCost)
 					maxCost = deltaCost;
 			}
+			if (metrics != null)
+				metrics.add(SearchMetrics.Counter.INSERTION_EVALUATIONS, size);
 
 			/*
-			 * Among all candidates, insert into the RCL those with the highest
-			 * performance.
+			 * Among all candidates, insert into the RCL those whose cost is
+			 * within the threshold, reusing the saved costs.
 			 */
-			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, sol);
-				if (deltaCost <= minCost) {
-					RCL.add(c);
+			double threshold = alpha > 0.0 ? minCost + alpha * (maxCost - minCost) : minCost;
+			int rclSize = 0;
+			for (int k = 0; k < size; k++) {
+				if (candidateCosts[k] <= threshold) {
+					RCL.add(CL.get(k));
+					rclPositions[rclSize++] = k;
 				}
 			}
-		
+			if (RCL.isEmpty())
+				break;
+
 			/* Choose a candidate randomly from the RCL */
 			int rndIndex = rng.nextInt(RCL.size());
 			E inCand = RCL.get(rndIndex);
-			CL.remove(inCand);
+			CL.remove(rclPositions[rndIndex]);
+			sol.cost += candidateCosts[rclPositions[rndIndex]];
 			sol.add(inCand);
-			ObjFunction.evaluate(sol);
+			session.applyInsertion(inCand);
 			RCL.clear();
 
 		}
@@ -208,27 +398,151 @@ public abstract class AbstractTS<E> {
 	/**
 	 * The TS mainframe. It consists of a constructive heuristic followed by
 	 * a loop, in which each iteration a neighborhood move is performed on
-	 * the current solution. The best solution is returned as result.
+	 * the current solution, until the criteria of
+	 * {@link #defaultTermination()} are met. The best solution is returned as
+	 * result.
 	 * 
 	 * @return The best feasible solution obtained throughout all iterations.
 	 */
 	public Solution<E> solve() {
+		return solve(defaultTermination());
+	}
 
-		bestSol = createEmptySol();
-		constructiveHeuristic();
-		TL = makeTL();
-		for (int i = 0; i < iterations; i++) {
-			neighborhoodMove();
-			if (bestSol.cost > sol.cost) {
-				bestSol = new Solution<E>(sol);
-				if (verbose)
-					System.out.println("(Iter. " + i + ") BestSol = " + bestSol);
+	/**
+	 * The anytime TS mainframe. It consists of the initialization of the
+	 * search (see {@link #initialize()}) followed by a loop, in which each
+	 * iteration a neighborhood move is performed on the current solution,
+	 * until some criterion of a termination is met. If the termination sets
+	 * no maximum number of iterations, the number of iterations of the
+	 * search applies. Every improvement of the best solution is pushed to the
+	 * improvement listeners, and the reason to stop is given by
+	 * {@link #getStopReason()}.
+	 * 
+	 * @param termination
+	 *            The stopping criteria.
+	 * @return The best feasible solution obtained throughout all iterations.
+	 */
+	public Solution<E> solve(Termination termination) {
+
+		if (termination.getMaxIterations() < 0)
+			termination = new Termination(termination).setMaxIterations(iterations);
+		long startNanos = System.nanoTime();
+		long startCpuNanos = termination.getCpuTimeLimitNanos() >= 0 ? Termination.cpuTime() : 0;
+		stopReason = null;
+		iterationsPerformed = 0;
+		ImprovementListener<E> printer = verbose ? ImprovementListener.printing() : null;
+		if (printer != null)
+			listeners.add(printer);
+
+		try {
+			initialize();
+			long searchNanos = System.nanoTime();
+			if (metrics != null)
+				metrics.addTime(SearchMetrics.Phase.CONSTRUCTION, searchNanos - startNanos);
+			long withoutImprovement = 0;
+			for (long i = 0;; i++) {
+				stopReason = termination.check(i, withoutImprovement, bestSol.cost, startNanos, startCpuNanos);
+				if (stopReason != null)
+					break;
+				neighborhoodMove();
+				iterationsPerformed = i + 1;
+				if (metrics != null)
+					metrics.increment(SearchMetrics.Counter.ITERATIONS);
+				if (bestSol.cost > sol.cost) {
+					bestSol.copyFrom(sol);
+					withoutImprovement = 0;
+					for (ImprovementListener<E> listener : listeners) {
+						listener.improved(bestSol, i + 1, System.nanoTime() - startNanos);
+					}
+				} else {
+					withoutImprovement++;
+				}
+				afterMove(i);
 			}
+			if (metrics != null)
+				metrics.addTime(SearchMetrics.Phase.SEARCH, System.nanoTime() - searchNanos);
+		} finally {
+			// The engine creates a new pool on demand
+			if (neighborhood != null)
+				neighborhood.shutdown();
+			if (printer != null)
+				listeners.remove(printer);
 		}
 
 		return bestSol;
 	}
 
+	/**
+	 * Gives the stopping criteria of {@link #solve()}, which by default only
+	 * bound the number of iterations, to the number given to the search.
+	 * 
+	 * @return A new termination.
+	 */
+	protected Termination defaultTermination() {
+		return new Termination().setMaxIterations(iterations);
+	}
+
+	/**
+	 * Initializes a search: sets up the best solution, builds the incumbent
+	 * solution {@link #sol} (bound to the session) with the constructive
+	 * heuristic, and creates the Tabu List.
+	 */
+	protected void initialize() {
+		bestSol = createEmptySol();
+		constructiveHeuristic();
+		TL = makeTL();
+	}
+
+	/**
+	 * Hook called after each iteration of the search, once the best solution
+	 * has been updated, e.g., to apply intensification or diversification
+	 * strategies. Does nothing by default.
+	 * 
+	 * @param iteration
+	 *            The index of the iteration, from 0.
+	 */
+	protected void afterMove(long iteration) {
+	}
+
+	/**
+	 * Adds a listener to be notified, on the searching thread, of every
+	 * improvement of the best solution.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addImprovementListener(ImprovementListener<E> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener of the improvements of the best solution.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeImprovementListener(ImprovementListener<E> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Gives the reason why the last search stopped.
+	 * 
+	 * @return The reason, or null if no search ran to completion.
+	 */
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Gives the number of iterations performed by the last search.
+	 * 
+	 * @return The number of neighborhood moves performed.
+	 */
+	public long getIterationsPerformed() {
+		return iterationsPerformed;
+	}
+
 	/**
 	 * A standard stopping criteria for the constructive heuristic is to repeat
 	 * until the incumbent solution improves by inserting a new candidate
@@ -0,0 +1,35 @@
+package metaheuristics.tabusearch;
+
+/**
+ * Token through which a search running on another thread is asked to stop.
+ * The search checks the token once per iteration (see {@link Termination}),
+ * and returns the best solution found so far with
+ * {@link StopReason#CANCELLED}. A token may be shared by several searches,
+ * e.g., by the runs of a {@link MultiStartTS}, which are then cancelled
+ * together.
+ */
+public class CancellationToken {
+
+	/**
+	 * whether the cancellation was requested.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Requests the cancellation of the searches using this token. The call
+	 * returns immediately, and the searches stop at their next iteration.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks whether the cancellation was requested.
+	 *
+	 * @return true if {@link #cancel()} was called.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
@@ -0,0 +1,47 @@
+package metaheuristics.tabusearch;
+
+import solutions.Solution;
+
+/**
+ * Listener of the improvements of the best solution of a search, notified on
+ * the searching thread as soon as a better solution is found (see
+ * {@link AbstractTS#addImprovementListener(ImprovementListener)}). Callers
+ * may use it to report progress, or to keep the best solution so far and
+ * cancel the search once it is good enough.
+ *
+ * @param <E>
+ *            Generic type of the element which composes the solutions.
+ */
+@FunctionalInterface
+public interface ImprovementListener<E> {
+
+	/**
+	 * Called when the best solution improves.
+	 *
+	 * @param bestSol
+	 *            the new best solution, which is owned by the search and
+	 *            overwritten by later improvements, so it must be copied if
+	 *            kept, and never modified.
+	 * @param iteration
+	 *            the number of iterations performed so far, including the
+	 *            one that found the solution.
+	 * @param elapsedNanos
+	 *            the wall-clock time since the search started, in
+	 *            nanoseconds.
+	 */
+	public abstract void improved(Solution<E> bestSol, long iteration, long elapsedNanos);
+
+	/**
+	 * Gives a listener which prints every improvement on screen, as done by
+	 * the verbose searches.
+	 *
+	 * @param <E>
+	 *            Generic type of the element which composes the solutions.
+	 * @return the printing listener.
+	 */
+	public static <E> ImprovementListener<E> printing() {
+		return (bestSol, iteration, elapsedNanos) -> System.out
+				.println("(Iter. " + (iteration - 1) + ") BestSol = " + bestSol);
+	}
+
+}
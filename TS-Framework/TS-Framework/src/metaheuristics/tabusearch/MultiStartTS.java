@@ -0,0 +1,249 @@
+package metaheuristics.tabusearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import solutions.Solution;
+
+/**
+ * Runner of independent Tabu Searches, possibly on several threads. Each run
+ * uses a new search created by a {@link Factory}, hence its own objective
+ * function and evaluation state, seeded with a seed of its own. The seeds are
+ * derived upfront from a master seed by splitting a {@link SplittableRandom},
+ * so the result of each run depends only on the master seed and on the index
+ * of the run, and not on the number of threads or on the scheduling of the
+ * runs.
+ *
+ * @param <E>
+ *            Generic type of the element which composes the solutions.
+ */
+public class MultiStartTS<E> {
+
+	/**
+	 * Creates the search of each run.
+	 *
+	 * @param <E>
+	 *            Generic type of the element which composes the solutions.
+	 */
+	@FunctionalInterface
+	public interface Factory<E> {
+
+		/**
+		 * Creates a new search, which must not share mutable state (e.g., the
+		 * objective function) with the searches of other runs.
+		 *
+		 * @param run
+		 *            the index of the run.
+		 * @return a new search.
+		 * @throws Exception
+		 *             if the search cannot be created (e.g., the instance
+		 *             cannot be read).
+		 */
+		public abstract AbstractTS<E> create(int run) throws Exception;
+
+	}
+
+	/**
+	 * Result of a single run.
+	 *
+	 * @param <E>
+	 *            Generic type of the element which composes the solutions.
+	 */
+	public static class RunResult<E> {
+
+		/**
+		 * the index of the run.
+		 */
+		public final int run;
+
+		/**
+		 * the seed of the run.
+		 */
+		public final long seed;
+
+		/**
+		 * the best solution found by the run.
+		 */
+		public final Solution<E> bestSol;
+
+		/**
+		 * the time spent by the run, in nanoseconds.
+		 */
+		public final long elapsedNanos;
+
+		public RunResult(int run, long seed, Solution<E> bestSol, long elapsedNanos) {
+			this.run = run;
+			this.seed = seed;
+			this.bestSol = bestSol;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "Run " + run + " (seed " + seed + "): " + bestSol;
+		}
+
+	}
+
+	/**
+	 * the factory of the searches.
+	 */
+	private final Factory<E> factory;
+
+	/**
+	 * the seed of each run.
+	 */
+	private final long[] seeds;
+
+	/**
+	 * the number of runs executed at the same time.
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * the stopping criteria of every run, or null for the default criteria of
+	 * each search.
+	 */
+	private Termination termination;
+
+	/**
+	 * the results of the last call to {@link #runAll()}.
+	 */
+	private List<RunResult<E>> results;
+
+	/**
+	 * Constructor for the MultiStartTS class.
+	 *
+	 * @param factory
+	 *            The factory of the searches.
+	 * @param runs
+	 *            The number of runs.
+	 * @param masterSeed
+	 *            The seed from which the seed of each run is derived.
+	 */
+	public MultiStartTS(Factory<E> factory, int runs, long masterSeed) {
+		this.factory = factory;
+		this.seeds = new long[runs];
+		SplittableRandom master = new SplittableRandom(masterSeed);
+		for (int i = 0; i < runs; i++) {
+			seeds[i] = master.split().nextLong();
+		}
+	}
+
+	/**
+	 * Sets the number of runs executed at the same time, which does not affect
+	 * the results.
+	 *
+	 * @param threads
+	 *            The number of threads, at least 1.
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the stopping criteria of every run (see
+	 * {@link AbstractTS#solve(Termination)}). Time budgets are counted for
+	 * each run from its own start, and a {@link CancellationToken} set in the
+	 * criteria cancels every run still executing.
+	 *
+	 * @param termination
+	 *            The stopping criteria, or null for the default criteria of
+	 *            each search.
+	 */
+	public void setTermination(Termination termination) {
+		this.termination = termination;
+	}
+
+	/**
+	 * Gives the seed of each run.
+	 *
+	 * @return A copy of the seeds, indexed by run.
+	 */
+	public long[] getSeeds() {
+		return seeds.clone();
+	}
+
+	/**
+	 * Executes every run.
+	 *
+	 * @return The result of each run, indexed by run.
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting.
+	 * @throws ExecutionException
+	 *             if some run fails, with the failure as its cause.
+	 */
+	public List<RunResult<E>> runAll() throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, seeds.length)));
+		try {
+			List<Future<RunResult<E>>> futures = new ArrayList<>(seeds.length);
+			for (int i = 0; i < seeds.length; i++) {
+				final int run = i;
+				futures.add(executor.submit(() -> execute(run)));
+			}
+			List<RunResult<E>> list = new ArrayList<>(seeds.length);
+			for (Future<RunResult<E>> future : futures) {
+				list.add(future.get());
+			}
+			results = Collections.unmodifiableList(list);
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Executes every run and returns the best solution found, the earliest
+	 * run winning ties.
+	 *
+	 * @return The best solution among all runs, or null if there are no runs.
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting.
+	 * @throws ExecutionException
+	 *             if some run fails, with the failure as its cause.
+	 */
+	public Solution<E> solve() throws InterruptedException, ExecutionException {
+		Solution<E> best = null;
+		for (RunResult<E> result : runAll()) {
+			if (best == null || result.bestSol.cost < best.cost)
+				best = result.bestSol;
+		}
+		return best;
+	}
+
+	/**
+	 * Gives the results of the last call to {@link #runAll()} or
+	 * {@link #solve()}.
+	 *
+	 * @return The result of each run, or null if no run was executed.
+	 */
+	public List<RunResult<E>> getResults() {
+		return results;
+	}
+
+	/**
+	 * Executes a single run.
+	 *
+	 * @param run
+	 *            The index of the run.
+	 * @return The result of the run.
+	 * @throws Exception
+	 *             if the search cannot be created.
+	 */
+	private RunResult<E> execute(int run) throws Exception {
+		AbstractTS<E> ts = factory.create(run);
+		ts.setSeed(seeds[run]);
+		long start = System.nanoTime();
+		Solution<E> bestSol = termination != null ? ts.solve(termination) : ts.solve();
+		return new RunResult<>(run, seeds[run], bestSol, System.nanoTime() - start);
+	}
+
+}
@@ -0,0 +1,325 @@
+package metaheuristics.tabusearch;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Engine for scanning the neighborhood of a Tabu Search. The neighborhood is
+ * partitioned into tasks numbered 0, ..., numTasks-1 (e.g., one task per
+ * candidate element, or per row of the exchange moves), and each task is
+ * scanned by a {@link Scanner}, which offers admissible moves to a
+ * {@link BestMove} accumulator.
+ *
+ * For best-improving searches the tasks may be spread over a
+ * {@link ForkJoinPool}, each worker owning its accumulators. Every move is
+ * offered with a rank, its position in the sequential enumeration of the
+ * neighborhood, and the accumulators keep the move with the smallest value,
+ * breaking ties by the smallest rank. The reduction is therefore
+ * deterministic, and yields exactly the move the sequential scan would have
+ * chosen, whatever the number of threads.
+ *
+ * Scanners run concurrently, so they may only read the state of the search
+ * while the neighborhood is scanned. The queries of
+ * {@link problems.EvaluationSession} implementations such as
+ * {@link problems.qbf.IncrementalQBF} do not modify the session, whereas the
+ * cost methods of {@link problems.qbf.QBF} write to
+ * {@link problems.qbf.QBF#variables} and must not be used by scanners.
+ */
+public class ParallelNeighborhood {
+
+	/**
+	 * Scans one task of the neighborhood.
+	 */
+	@FunctionalInterface
+	public interface Scanner {
+
+		/**
+		 * Evaluates the moves of a task, offering the admissible ones to an
+		 * accumulator.
+		 *
+		 * @param task
+		 *            the index of the task.
+		 * @param best
+		 *            the accumulator of the worker scanning the task.
+		 */
+		public abstract void scan(int task, BestMove best);
+
+	}
+
+	/**
+	 * Accumulator of the best move offered so far. A move is described by the
+	 * elements entering and leaving the solution, -1 standing for none.
+	 *
+	 * An accumulator also counts the events of the scan for the
+	 * {@link SearchMetrics} (e.g., the moves evaluated), as plain fields, since
+	 * it is confined to a worker. The counts are summed by
+	 * {@link #merge(BestMove)}.
+	 */
+	public static final class BestMove {
+
+		private boolean found;
+		private double value;
+		private long rank;
+		private int in;
+		private int out;
+		private final long[] counts = new long[SearchMetrics.Counter.values().length];
+
+		/**
+		 * Creates an empty accumulator.
+		 */
+		public BestMove() {
+			reset();
+		}
+
+		/**
+		 * Empties the accumulator.
+		 */
+		public void reset() {
+			found = false;
+			value = Double.POSITIVE_INFINITY;
+			rank = Long.MAX_VALUE;
+			in = -1;
+			out = -1;
+			for (int k = 0; k < counts.length; k++) {
+				counts[k] = 0;
+			}
+		}
+
+		/**
+		 * Offers a move, which is kept if the accumulator is empty, if its value
+		 * is smaller than the value of the best move, or if both values are
+		 * equal and its rank is smaller.
+		 *
+		 * @param value
+		 *            the value of the move, usually a cost or a cost variation.
+		 * @param rank
+		 *            the position of the move in the sequential enumeration.
+		 * @param in
+		 *            the element entering the solution, or -1 if none.
+		 * @param out
+		 *            the element leaving the solution, or -1 if none.
+		 * @return true if the move was kept.
+		 */
+		public boolean offer(double value, long rank, int in, int out) {
+			if (found && !(value < this.value) && !(value == this.value && rank < this.rank))
+				return false;
+			this.found = true;
+			this.value = value;
+			this.rank = rank;
+			this.in = in;
+			this.out = out;
+			return true;
+		}
+
+		/**
+		 * Merges the best move of another accumulator into this one.
+		 *
+		 * @param other
+		 *            the accumulator being merged.
+		 */
+		public void merge(BestMove other) {
+			if (other.found)
+				offer(other.value, other.rank, other.in, other.out);
+			for (int k = 0; k < counts.length; k++) {
+				counts[k] += other.counts[k];
+			}
+		}
+
+		/**
+		 * Counts an event of the scan.
+		 *
+		 * @param counter
+		 *            the counter of the event.
+		 */
+		public void count(SearchMetrics.Counter counter) {
+			counts[counter.ordinal()]++;
+		}
+
+		/**
+		 * Counts several events of the scan.
+		 *
+		 * @param counter
+		 *            the counter of the events.
+		 * @param n
+		 *            the number of events.
+		 */
+		public void count(SearchMetrics.Counter counter, long n) {
+			counts[counter.ordinal()] += n;
+		}
+
+		/**
+		 * @param counter
+		 *            a counter.
+		 * @return the number of events counted by the scan.
+		 */
+		public long getCount(SearchMetrics.Counter counter) {
+			return counts[counter.ordinal()];
+		}
+
+		/**
+		 * @return true if some move was kept.
+		 */
+		public boolean isFound() {
+			return found;
+		}
+
+		/**
+		 * @return the value of the best move.
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the rank of the best move.
+		 */
+		public long getRank() {
+			return rank;
+		}
+
+		/**
+		 * @return the element entering the solution, or -1 if none.
+		 */
+		public int getIn() {
+			return in;
+		}
+
+		/**
+		 * @return the element leaving the solution, or -1 if none.
+		 */
+		public int getOut() {
+			return out;
+		}
+
+	}
+
+	/**
+	 * the number of worker threads, 1 meaning a sequential scan.
+	 */
+	private final int parallelism;
+
+	/**
+	 * the pool of worker threads, created on demand.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * the accumulator reused by sequential scans.
+	 */
+	private final BestMove sequential = new BestMove();
+
+	/**
+	 * Constructor for the ParallelNeighborhood class.
+	 *
+	 * @param parallelism
+	 *            the number of worker threads, 1 meaning a sequential scan.
+	 */
+	public ParallelNeighborhood(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Scans every task of the neighborhood, in parallel if the engine has more
+	 * than one worker, and returns the best move offered. The accumulator
+	 * returned may be reused by the next scan.
+	 *
+	 * @param numTasks
+	 *            the number of tasks of the neighborhood.
+	 * @param scanner
+	 *            the scanner of each task.
+	 * @return the best move offered, which may be empty.
+	 */
+	public BestMove findBest(int numTasks, Scanner scanner) {
+		if (parallelism == 1 || numTasks < 2) {
+			sequential.reset();
+			for (int t = 0; t < numTasks; t++) {
+				scanner.scan(t, sequential);
+			}
+			return sequential;
+		}
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+		int leafSize = Math.max(1, numTasks / (4 * parallelism));
+		return pool.invoke(new ScanTask(scanner, 0, numTasks, leafSize));
+	}
+
+	/**
+	 * Scans the tasks of the neighborhood sequentially, in order, stopping
+	 * after the first task in which some move is offered. This is the scan of
+	 * first-improving searches, whose scanners offer only improving moves and
+	 * return as soon as one is found. The accumulator returned may be reused
+	 * by the next scan.
+	 *
+	 * @param numTasks
+	 *            the number of tasks of the neighborhood.
+	 * @param scanner
+	 *            the scanner of each task.
+	 * @return the first move offered, which may be empty.
+	 */
+	public BestMove findFirst(int numTasks, Scanner scanner) {
+		sequential.reset();
+		for (int t = 0; t < numTasks && !sequential.isFound(); t++) {
+			scanner.scan(t, sequential);
+		}
+		return sequential;
+	}
+
+	/**
+	 * Releases the worker threads. The engine may still be used afterwards,
+	 * in which case a new pool is created.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Scans a range of tasks, splitting it in halves while it is larger than
+	 * the leaf size.
+	 */
+	@SuppressWarnings("serial")
+	private static final class ScanTask extends RecursiveTask<BestMove> {
+
+		private final Scanner scanner;
+		private final int from;
+		private final int to;
+		private final int leafSize;
+
+		ScanTask(Scanner scanner, int from, int to, int leafSize) {
+			this.scanner = scanner;
+			this.from = from;
+			this.to = to;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected BestMove compute() {
+			if (to - from <= leafSize) {
+				BestMove best = new BestMove();
+				for (int t = from; t < to; t++) {
+					scanner.scan(t, best);
+				}
+				return best;
+			}
+			int mid = (from + to) >>> 1;
+			ScanTask left = new ScanTask(scanner, from, mid, leafSize);
+			left.fork();
+			BestMove best = new ScanTask(scanner, mid, to, leafSize).compute();
+			best.merge(left.join());
+			return best;
+		}
+
+	}
+
+}
@@ -0,0 +1,386 @@
+package metaheuristics.tabusearch;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and phase timers of Tabu Searches: the moves evaluated and
+ * applied of each type, the tabu rejections and aspirations, the restarts
+ * and the time spent constructing and searching. A search only collects
+ * metrics once some are set (see {@link AbstractTS#setMetrics(SearchMetrics)});
+ * otherwise every hot path is guarded by a null check, and the cost is
+ * near zero.
+ *
+ * The counters are {@link LongAdder}s, so the same metrics may be shared by
+ * concurrent searches (e.g., the runs of a {@link MultiStartTS}). The
+ * counts of the neighborhood scans are not added to them move by move:
+ * scanners count on their own {@link ParallelNeighborhood.BestMove}
+ * accumulators, which are confined to a worker and merged by the reduction,
+ * and the totals are added once per iteration (see
+ * {@link #add(ParallelNeighborhood.BestMove)}).
+ *
+ * The metrics are read as a {@link Snapshot}, or over JMX once registered
+ * (see {@link #register(String)}).
+ */
+public class SearchMetrics implements SearchMetricsMXBean {
+
+	/**
+	 * The counted events.
+	 */
+	public enum Counter {
+
+		/**
+		 * an insertion was evaluated.
+		 */
+		INSERTION_EVALUATIONS,
+
+		/**
+		 * a removal was evaluated.
+		 */
+		REMOVAL_EVALUATIONS,
+
+		/**
+		 * an exchange was evaluated.
+		 */
+		EXCHANGE_EVALUATIONS,
+
+		/**
+		 * an insertion was applied.
+		 */
+		INSERTIONS,
+
+		/**
+		 * a removal was applied.
+		 */
+		REMOVALS,
+
+		/**
+		 * an exchange was applied.
+		 */
+		EXCHANGES,
+
+		/**
+		 * a move was rejected for being tabu.
+		 */
+		TABU_REJECTIONS,
+
+		/**
+		 * a tabu move was allowed by the aspiration criterion.
+		 */
+		ASPIRATIONS,
+
+		/**
+		 * the incumbent solution was restarted by an intensification or
+		 * diversification strategy.
+		 */
+		RESTARTS,
+
+		/**
+		 * an iteration of the main loop was performed.
+		 */
+		ITERATIONS
+
+	}
+
+	/**
+	 * The timed phases of a search.
+	 */
+	public enum Phase {
+
+		/**
+		 * the construction of the initial solution.
+		 */
+		CONSTRUCTION,
+
+		/**
+		 * the main loop.
+		 */
+		SEARCH
+
+	}
+
+	/**
+	 * Immutable copy of the metrics at some instant.
+	 */
+	public static final class Snapshot {
+
+		private final long[] counts;
+		private final long[] nanos;
+
+		private Snapshot(long[] counts, long[] nanos) {
+			this.counts = counts;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * Gives the value of a counter.
+		 *
+		 * @param counter
+		 *            the counter.
+		 * @return the number of events counted.
+		 */
+		public long get(Counter counter) {
+			return counts[counter.ordinal()];
+		}
+
+		/**
+		 * Gives the time spent in a phase.
+		 *
+		 * @param phase
+		 *            the phase.
+		 * @return the time, in nanoseconds.
+		 */
+		public long getNanos(Phase phase) {
+			return nanos[phase.ordinal()];
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("SearchMetrics[");
+			for (Counter counter : Counter.values()) {
+				sb.append(counter.name().toLowerCase()).append('=').append(get(counter)).append(", ");
+			}
+			for (Phase phase : Phase.values()) {
+				sb.append(phase.name().toLowerCase()).append('=').append(getNanos(phase) / 1e6).append("ms, ");
+			}
+			sb.setLength(sb.length() - 2);
+			return sb.append(']').toString();
+		}
+
+	}
+
+	private static final Counter[] COUNTERS = Counter.values();
+	private static final Phase[] PHASES = Phase.values();
+
+	/**
+	 * the value of each counter.
+	 */
+	private final LongAdder[] counts = new LongAdder[COUNTERS.length];
+
+	/**
+	 * the time spent in each phase, in nanoseconds.
+	 */
+	private final LongAdder[] nanos = new LongAdder[PHASES.length];
+
+	/**
+	 * the name under which the metrics are registered, or null.
+	 */
+	private ObjectName objectName;
+
+	/**
+	 * Constructor for the SearchMetrics class, with every counter and timer
+	 * at zero.
+	 */
+	public SearchMetrics() {
+		for (int k = 0; k < counts.length; k++) {
+			counts[k] = new LongAdder();
+		}
+		for (int k = 0; k < nanos.length; k++) {
+			nanos[k] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Counts an event.
+	 *
+	 * @param counter
+	 *            the counter of the event.
+	 */
+	public void increment(Counter counter) {
+		counts[counter.ordinal()].increment();
+	}
+
+	/**
+	 * Counts several events.
+	 *
+	 * @param counter
+	 *            the counter of the events.
+	 * @param n
+	 *            the number of events.
+	 */
+	public void add(Counter counter, long n) {
+		if (n != 0)
+			counts[counter.ordinal()].add(n);
+	}
+
+	/**
+	 * Adds the counts of a neighborhood scan, i.e., of its (merged)
+	 * accumulator.
+	 *
+	 * @param move
+	 *            the accumulator returned by the scan.
+	 */
+	public void add(ParallelNeighborhood.BestMove move) {
+		for (Counter counter : COUNTERS) {
+			add(counter, move.getCount(counter));
+		}
+	}
+
+	/**
+	 * Adds the time spent in a phase.
+	 *
+	 * @param phase
+	 *            the phase.
+	 * @param elapsedNanos
+	 *            the time, in nanoseconds.
+	 */
+	public void addTime(Phase phase, long elapsedNanos) {
+		nanos[phase.ordinal()].add(elapsedNanos);
+	}
+
+	/**
+	 * Gives the value of a counter.
+	 *
+	 * @param counter
+	 *            the counter.
+	 * @return the number of events counted so far.
+	 */
+	public long get(Counter counter) {
+		return counts[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Gives the time spent in a phase.
+	 *
+	 * @param phase
+	 *            the phase.
+	 * @return the time spent so far, in nanoseconds.
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()].sum();
+	}
+
+	/**
+	 * Copies the current metrics. Each value is read atomically, but the
+	 * values are not read at once, so events counted concurrently may be
+	 * partially reflected.
+	 *
+	 * @return a snapshot of the metrics.
+	 */
+	public Snapshot snapshot() {
+		long[] c = new long[counts.length];
+		for (int k = 0; k < c.length; k++) {
+			c[k] = counts[k].sum();
+		}
+		long[] t = new long[nanos.length];
+		for (int k = 0; k < t.length; k++) {
+			t[k] = nanos[k].sum();
+		}
+		return new Snapshot(c, t);
+	}
+
+	@Override
+	public void reset() {
+		for (LongAdder count : counts) {
+			count.reset();
+		}
+		for (LongAdder time : nanos) {
+			time.reset();
+		}
+	}
+
+	/**
+	 * Registers the metrics in the platform MBean server, under the name
+	 * {@code metaheuristics.tabusearch:type=SearchMetrics,name=<name>}.
+	 *
+	 * @param name
+	 *            the name of the metrics, e.g., of the instance or
+	 *            configuration being solved.
+	 * @return the name under which the metrics were registered.
+	 * @throws JMException
+	 *             if the metrics cannot be registered, e.g., if the name is
+	 *             already taken.
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName(
+				"metaheuristics.tabusearch:type=SearchMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+		return objectName;
+	}
+
+	/**
+	 * Unregisters the metrics from the platform MBean server, if registered.
+	 *
+	 * @throws JMException
+	 *             if the metrics cannot be unregistered.
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	@Override
+	public long getInsertionEvaluations() {
+		return get(Counter.INSERTION_EVALUATIONS);
+	}
+
+	@Override
+	public long getRemovalEvaluations() {
+		return get(Counter.REMOVAL_EVALUATIONS);
+	}
+
+	@Override
+	public long getExchangeEvaluations() {
+		return get(Counter.EXCHANGE_EVALUATIONS);
+	}
+
+	@Override
+	public long getInsertions() {
+		return get(Counter.INSERTIONS);
+	}
+
+	@Override
+	public long getRemovals() {
+		return get(Counter.REMOVALS);
+	}
+
+	@Override
+	public long getExchanges() {
+		return get(Counter.EXCHANGES);
+	}
+
+	@Override
+	public long getTabuRejections() {
+		return get(Counter.TABU_REJECTIONS);
+	}
+
+	@Override
+	public long getAspirations() {
+		return get(Counter.ASPIRATIONS);
+	}
+
+	@Override
+	public long getRestarts() {
+		return get(Counter.RESTARTS);
+	}
+
+	@Override
+	public long getIterations() {
+		return get(Counter.ITERATIONS);
+	}
+
+	@Override
+	public long getConstructionNanos() {
+		return getNanos(Phase.CONSTRUCTION);
+	}
+
+	@Override
+	public long getSearchNanos() {
+		return getNanos(Phase.SEARCH);
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+}
@@ -0,0 +1,76 @@
+package metaheuristics.tabusearch;
+
+/**
+ * Management interface of the {@link SearchMetrics}, through which the
+ * counters and phase timers of the searches are read over JMX (see
+ * {@link SearchMetrics#register(String)}).
+ */
+public interface SearchMetricsMXBean {
+
+	/**
+	 * @return the number of insertions evaluated.
+	 */
+	public abstract long getInsertionEvaluations();
+
+	/**
+	 * @return the number of removals evaluated.
+	 */
+	public abstract long getRemovalEvaluations();
+
+	/**
+	 * @return the number of exchanges evaluated.
+	 */
+	public abstract long getExchangeEvaluations();
+
+	/**
+	 * @return the number of insertions applied.
+	 */
+	public abstract long getInsertions();
+
+	/**
+	 * @return the number of removals applied.
+	 */
+	public abstract long getRemovals();
+
+	/**
+	 * @return the number of exchanges applied.
+	 */
+	public abstract long getExchanges();
+
+	/**
+	 * @return the number of moves rejected for being tabu.
+	 */
+	public abstract long getTabuRejections();
+
+	/**
+	 * @return the number of tabu moves allowed by the aspiration criterion.
+	 */
+	public abstract long getAspirations();
+
+	/**
+	 * @return the number of restarts of the incumbent solution.
+	 */
+	public abstract long getRestarts();
+
+	/**
+	 * @return the number of iterations of the searches.
+	 */
+	public abstract long getIterations();
+
+	/**
+	 * @return the time spent building initial solutions, in nanoseconds.
+	 */
+	public abstract long getConstructionNanos();
+
+	/**
+	 * @return the time spent in the main loops of the searches, in
+	 *         nanoseconds.
+	 */
+	public abstract long getSearchNanos();
+
+	/**
+	 * Sets every counter and timer back to zero.
+	 */
+	public abstract void reset();
+
+}
@@ -0,0 +1,40 @@
+package metaheuristics.tabusearch;
+
+/**
+ * The reason why a Tabu Search stopped, see {@link Termination} and
+ * {@link AbstractTS#getStopReason()}.
+ */
+public enum StopReason {
+
+	/**
+	 * the maximum number of iterations was performed.
+	 */
+	MAX_ITERATIONS,
+
+	/**
+	 * the wall-clock time budget was exhausted.
+	 */
+	TIME_LIMIT,
+
+	/**
+	 * the CPU time budget of the searching thread was exhausted.
+	 */
+	CPU_TIME_LIMIT,
+
+	/**
+	 * the maximum number of consecutive iterations without improving the best
+	 * solution was performed.
+	 */
+	NO_IMPROVEMENT,
+
+	/**
+	 * the best solution reached the target cost.
+	 */
+	TARGET_REACHED,
+
+	/**
+	 * the search was cancelled through its {@link CancellationToken}.
+	 */
+	CANCELLED
+
+}
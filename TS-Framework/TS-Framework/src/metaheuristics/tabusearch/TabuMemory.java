@@ -0,0 +1,162 @@
+package metaheuristics.tabusearch;
+
+import java.util.Arrays;
+
+/**
+ * Short term memory of the Tabu Search. Instead of a list of tabu elements,
+ * it keeps for each element (attribute) the iteration until which moving it
+ * is forbidden, so that checking and updating the tabu status are O(1)
+ * operations. The iterations are counted by the number of moves performed,
+ * see {@link #advance()}.
+ *
+ * Elements entering and leaving the solution are handled separately: an
+ * element that has just been removed is forbidden to return to the solution
+ * for {@link #insertionTenure} moves, whereas an element that has just been
+ * inserted is forbidden to leave the solution for {@link #removalTenure}
+ * moves.
+ */
+public class TabuMemory {
+
+	/**
+	 * the number of moves during which a removed element cannot be inserted
+	 * back into the solution.
+	 */
+	protected final int insertionTenure;
+
+	/**
+	 * the number of moves during which an inserted element cannot be removed
+	 * from the solution.
+	 */
+	protected final int removalTenure;
+
+	/**
+	 * the first iteration in which each element may be inserted again.
+	 */
+	protected final int[] insertionTabuUntil;
+
+	/**
+	 * the first iteration in which each element may be removed again.
+	 */
+	protected final int[] removalTabuUntil;
+
+	/**
+	 * the current iteration, i.e., the number of moves performed so far.
+	 */
+	protected int iteration;
+
+	/**
+	 * Constructor for the TabuMemory class, with the same tenure for elements
+	 * entering and leaving the solution.
+	 *
+	 * @param size
+	 *            The number of elements (attributes) of the domain.
+	 * @param tenure
+	 *            The Tabu tenure.
+	 */
+	public TabuMemory(int size, int tenure) {
+		this(size, tenure, tenure);
+	}
+
+	/**
+	 * Constructor for the TabuMemory class.
+	 *
+	 * @param size
+	 *            The number of elements (attributes) of the domain.
+	 * @param insertionTenure
+	 *            The number of moves during which a removed element cannot be
+	 *            inserted back into the solution.
+	 * @param removalTenure
+	 *            The number of moves during which an inserted element cannot
+	 *            be removed from the solution.
+	 */
+	public TabuMemory(int size, int insertionTenure, int removalTenure) {
+		this.insertionTenure = insertionTenure;
+		this.removalTenure = removalTenure;
+		this.insertionTabuUntil = new int[size];
+		this.removalTabuUntil = new int[size];
+		clear();
+	}
+
+	/**
+	 * Checks whether inserting an element into the solution is tabu.
+	 *
+	 * @param elem
+	 *            the element under consideration for insertion.
+	 * @return true if the insertion is tabu.
+	 */
+	public boolean isInsertionTabu(int elem) {
+		return insertionTabuUntil[elem] > iteration;
+	}
+
+	/**
+	 * Checks whether removing an element from the solution is tabu.
+	 *
+	 * @param elem
+	 *            the element under consideration for removal.
+	 * @return true if the removal is tabu.
+	 */
+	public boolean isRemovalTabu(int elem) {
+		return removalTabuUntil[elem] > iteration;
+	}
+
+	/**
+	 * Checks whether an element is tabu in any direction, which is the
+	 * semantics of an element belonging to a Tabu List.
+	 *
+	 * @param elem
+	 *            the element under consideration.
+	 * @return true if the element is tabu.
+	 */
+	public boolean isTabu(int elem) {
+		return isInsertionTabu(elem) || isRemovalTabu(elem);
+	}
+
+	/**
+	 * Records that an element has been inserted into the solution by the
+	 * current move, forbidding its removal.
+	 *
+	 * @param elem
+	 *            the inserted element.
+	 */
+	public void markInserted(int elem) {
+		removalTabuUntil[elem] = iteration + removalTenure + 1;
+	}
+
+	/**
+	 * Records that an element has been removed from the solution by the
+	 * current move, forbidding its insertion.
+	 *
+	 * @param elem
+	 *            the removed element.
+	 */
+	public void markRemoved(int elem) {
+		insertionTabuUntil[elem] = iteration + insertionTenure + 1;
+	}
+
+	/**
+	 * Advances the memory to the next iteration. Must be called once for each
+	 * move performed, after the elements moved have been marked.
+	 */
+	public void advance() {
+		iteration++;
+	}
+
+	/**
+	 * Gives the current iteration of the memory.
+	 *
+	 * @return the number of moves performed so far.
+	 */
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * Clears the memory, making every move non tabu.
+	 */
+	public void clear() {
+		Arrays.fill(insertionTabuUntil, 0);
+		Arrays.fill(removalTabuUntil, 0);
+		iteration = 0;
+	}
+
+}
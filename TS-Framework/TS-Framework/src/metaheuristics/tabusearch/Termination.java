@@ -0,0 +1,262 @@
+package metaheuristics.tabusearch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stopping criteria of a Tabu Search, checked before every iteration of
+ * {@link AbstractTS#solve(Termination)}. The search stops as soon as any of
+ * the criteria set is met:
+ * <ul>
+ * <li>a maximum number of iterations (by default, the number of iterations
+ * given to the search);</li>
+ * <li>a wall-clock time budget, counted from the start of the search;</li>
+ * <li>a CPU time budget of the searching thread (threads scanning the
+ * neighborhood in parallel are not counted), or the wall-clock time where
+ * the JVM does not measure CPU time;</li>
+ * <li>a maximum number of consecutive iterations without improving the best
+ * solution;</li>
+ * <li>a target cost, reached once the best solution costs at most the
+ * target (searches minimize, see {@link AbstractTS});</li>
+ * <li>the cancellation of a {@link CancellationToken}.</li>
+ * </ul>
+ * The setters return the termination itself, so the criteria may be
+ * chained, e.g.,
+ * <code>new Termination().setTimeLimit(10, TimeUnit.SECONDS).setTarget(-1500)</code>.
+ * A termination is only read by the searches, so it may be shared by
+ * concurrent searches once set up.
+ */
+public class Termination {
+
+	/**
+	 * the thread management interface, for CPU times.
+	 */
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * the maximum number of iterations, or -1 if not set.
+	 */
+	private long maxIterations = -1;
+
+	/**
+	 * the wall-clock time budget in nanoseconds, or -1 if not set.
+	 */
+	private long timeLimitNanos = -1;
+
+	/**
+	 * the CPU time budget in nanoseconds, or -1 if not set.
+	 */
+	private long cpuTimeLimitNanos = -1;
+
+	/**
+	 * the maximum number of consecutive iterations without improvement, or -1
+	 * if not set.
+	 */
+	private long maxIterationsWithoutImprovement = -1;
+
+	/**
+	 * the target cost, or NaN if not set.
+	 */
+	private double target = Double.NaN;
+
+	/**
+	 * the cancellation token, or null if not set.
+	 */
+	private CancellationToken token;
+
+	/**
+	 * Constructor for the Termination class, with no criteria set.
+	 */
+	public Termination() {
+	}
+
+	/**
+	 * Constructor for the Termination class, copying the criteria of another
+	 * termination.
+	 *
+	 * @param other
+	 *            the termination being copied.
+	 */
+	public Termination(Termination other) {
+		this.maxIterations = other.maxIterations;
+		this.timeLimitNanos = other.timeLimitNanos;
+		this.cpuTimeLimitNanos = other.cpuTimeLimitNanos;
+		this.maxIterationsWithoutImprovement = other.maxIterationsWithoutImprovement;
+		this.target = other.target;
+		this.token = other.token;
+	}
+
+	/**
+	 * Sets the maximum number of iterations.
+	 *
+	 * @param maxIterations
+	 *            the number of iterations, or -1 for the number of iterations
+	 *            given to the search.
+	 * @return this termination.
+	 */
+	public Termination setMaxIterations(long maxIterations) {
+		this.maxIterations = maxIterations < 0 ? -1 : maxIterations;
+		return this;
+	}
+
+	/**
+	 * Sets the wall-clock time budget of the search.
+	 *
+	 * @param duration
+	 *            the budget, or -1 for none.
+	 * @param unit
+	 *            the unit of the budget.
+	 * @return this termination.
+	 */
+	public Termination setTimeLimit(long duration, TimeUnit unit) {
+		this.timeLimitNanos = duration < 0 ? -1 : unit.toNanos(duration);
+		return this;
+	}
+
+	/**
+	 * Sets the CPU time budget of the searching thread.
+	 *
+	 * @param duration
+	 *            the budget, or -1 for none.
+	 * @param unit
+	 *            the unit of the budget.
+	 * @return this termination.
+	 */
+	public Termination setCpuTimeLimit(long duration, TimeUnit unit) {
+		this.cpuTimeLimitNanos = duration < 0 ? -1 : unit.toNanos(duration);
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of consecutive iterations without improving the
+	 * best solution.
+	 *
+	 * @param iterations
+	 *            the number of iterations, or -1 for no limit.
+	 * @return this termination.
+	 */
+	public Termination setMaxIterationsWithoutImprovement(long iterations) {
+		this.maxIterationsWithoutImprovement = iterations < 0 ? -1 : iterations;
+		return this;
+	}
+
+	/**
+	 * Sets the target cost, which stops the search once the best solution
+	 * costs at most the target.
+	 *
+	 * @param target
+	 *            the target cost, or NaN for none.
+	 * @return this termination.
+	 */
+	public Termination setTarget(double target) {
+		this.target = target;
+		return this;
+	}
+
+	/**
+	 * Sets the token through which the search may be cancelled.
+	 *
+	 * @param token
+	 *            the token, or null for none.
+	 * @return this termination.
+	 */
+	public Termination setCancellationToken(CancellationToken token) {
+		this.token = token;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of iterations, or -1 if not set.
+	 */
+	public long getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @return the wall-clock time budget in nanoseconds, or -1 if not set.
+	 */
+	public long getTimeLimitNanos() {
+		return timeLimitNanos;
+	}
+
+	/**
+	 * @return the CPU time budget in nanoseconds, or -1 if not set.
+	 */
+	public long getCpuTimeLimitNanos() {
+		return cpuTimeLimitNanos;
+	}
+
+	/**
+	 * @return the maximum number of consecutive iterations without
+	 *         improvement, or -1 if not set.
+	 */
+	public long getMaxIterationsWithoutImprovement() {
+		return maxIterationsWithoutImprovement;
+	}
+
+	/**
+	 * @return the target cost, or NaN if not set.
+	 */
+	public double getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return the cancellation token, or null if not set.
+	 */
+	public CancellationToken getCancellationToken() {
+		return token;
+	}
+
+	/**
+	 * Gives the CPU time of the current thread, or the wall-clock time where
+	 * the JVM does not measure it.
+	 *
+	 * @return the time in nanoseconds, from an arbitrary origin.
+	 */
+	public static long cpuTime() {
+		if (THREADS.isCurrentThreadCpuTimeSupported()) {
+			long time = THREADS.getCurrentThreadCpuTime();
+			if (time >= 0)
+				return time;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Checks the criteria, in the order in which they are listed by
+	 * {@link StopReason}. The clocks are only read for the budgets that are
+	 * set.
+	 *
+	 * @param iteration
+	 *            the number of iterations performed so far.
+	 * @param iterationsWithoutImprovement
+	 *            the number of consecutive iterations without improvement.
+	 * @param bestCost
+	 *            the cost of the best solution so far.
+	 * @param startNanos
+	 *            the value of {@link System#nanoTime()} when the search
+	 *            started.
+	 * @param startCpuNanos
+	 *            the value of {@link #cpuTime()} when the search started.
+	 * @return the reason to stop, or null if the search should go on.
+	 */
+	public StopReason check(long iteration, long iterationsWithoutImprovement, double bestCost, long startNanos,
+			long startCpuNanos) {
+		if (maxIterations >= 0 && iteration >= maxIterations)
+			return StopReason.MAX_ITERATIONS;
+		if (timeLimitNanos >= 0 && System.nanoTime() - startNanos >= timeLimitNanos)
+			return StopReason.TIME_LIMIT;
+		if (cpuTimeLimitNanos >= 0 && cpuTime() - startCpuNanos >= cpuTimeLimitNanos)
+			return StopReason.CPU_TIME_LIMIT;
+		if (maxIterationsWithoutImprovement >= 0 && iterationsWithoutImprovement >= maxIterationsWithoutImprovement)
+			return StopReason.NO_IMPROVEMENT;
+		if (bestCost <= target)
+			return StopReason.TARGET_REACHED;
+		if (token != null && token.isCancelled())
+			return StopReason.CANCELLED;
+		return null;
+	}
+
+}
@@ -0,0 +1,94 @@
+package problems;
+
+import solutions.Solution;
+
+/**
+ * An EvaluationSession is an {@link Evaluator} bound to a single solution,
+ * typically the incumbent solution of a local search. The session keeps
+ * whatever internal state is needed to evaluate moves against the bound
+ * solution without re-deriving it on every call, and is kept up to date by
+ * being notified of every move applied to that solution. Cost variations are
+ * reported as primitive doubles, with the same meaning as the corresponding
+ * {@link Evaluator} methods.
+ *
+ * The caller is responsible for applying a move to the bound solution and
+ * notifying the session, so that both remain synchronized. Whenever the
+ * solution is modified by other means (e.g., a restart) the session must be
+ * bound again.
+ *
+ * @param <E>
+ *            Generic type of the elements of a solution.
+ */
+public interface EvaluationSession<E> extends Evaluator<E> {
+
+	/**
+	 * Binds the session to a solution, rebuilding its internal state from
+	 * scratch.
+	 *
+	 * @param sol
+	 *            the solution the session will track.
+	 */
+	public abstract void bind(Solution<E> sol);
+
+	/**
+	 * Evaluates the cost variation of inserting an element into the bound
+	 * solution.
+	 *
+	 * @param elem
+	 *            the element under consideration for insertion.
+	 * @return the cost variation resulting from the element insertion.
+	 */
+	public abstract double evaluateInsertion(E elem);
+
+	/**
+	 * Evaluates the cost variation of removing an element from the bound
+	 * solution.
+	 *
+	 * @param elem
+	 *            the element under consideration for removal.
+	 * @return the cost variation resulting from the element removal.
+	 */
+	public abstract double evaluateRemoval(E elem);
+
+	/**
+	 * Evaluates the cost variation of exchanging two elements of the bound
+	 * solution, one entering (elemIn) and the other leaving it (elemOut).
+	 *
+	 * @param elemIn
+	 *            the element under consideration for insertion.
+	 * @param elemOut
+	 *            the element under consideration for removal.
+	 * @return the cost variation resulting from the elements exchange.
+	 */
+	public abstract double evaluateExchange(E elemIn, E elemOut);
+
+	/**
+	 * Notifies the session that an element was inserted into the bound
+	 * solution.
+	 *
+	 * @param elem
+	 *            the inserted element.
+	 */
+	public abstract void applyInsertion(E elem);
+
+	/**
+	 * Notifies the session that an element was removed from the bound
+	 * solution.
+	 *
+	 * @param elem
+	 *            the removed element.
+	 */
+	public abstract void applyRemoval(E elem);
+
+	/**
+	 * Notifies the session that two elements of the bound solution were
+	 * exchanged.
+	 *
+	 * @param elemIn
+	 *            the element that entered the solution.
+	 * @param elemOut
+	 *            the element that left the solution.
+	 */
+	public abstract void applyExchange(E elemIn, E elemOut);
+
+}
@@ -0,0 +1,341 @@
+package problems;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Binary cache of a text instance, written next to it (with the suffix
+ * {@link #SUFFIX}) the first time the instance is read, and memory-mapped on
+ * the following reads, with no parsing at all.
+ *
+ * The cache file is a little-endian header followed by the nonzero
+ * coefficients of the upper triangle of the matrix as compressed sparse rows
+ * (their values, the offset of the first coefficient of each row and their
+ * columns), and, for set cover instances, the subsets as compressed rows (the
+ * offset of the first element of each subset, followed by the elements of
+ * all subsets). The header holds:
+ *
+ * <pre>
+ *  0  int   magic number
+ *  4  int   format version
+ *  8  int   kind of instance
+ * 12  int   n
+ * 16  long  length of the text instance
+ * 24  long  last modification time of the text instance, in milliseconds
+ * 32  long  hash of the contents of the text instance
+ * 40  int   total number of elements of the subsets
+ * 44  int   number of nonzero coefficients
+ * </pre>
+ *
+ * A cache is stale when the text instance has a different length, or a
+ * different modification time and contents, in which case it is rewritten.
+ * Caches are written to a temporary file which is then renamed, so that
+ * concurrent readers of the same instance never see a partial file. Failing
+ * to write a cache (e.g., in a read-only directory) is not an error, the
+ * instance is just parsed again the next time.
+ *
+ * Caching is disabled by setting the system property
+ * {@code instances.cache} to {@code false}.
+ */
+public class InstanceCache {
+
+	/**
+	 * The suffix appended to the name of a text instance to name its cache.
+	 */
+	public static final String SUFFIX = ".tsbin";
+
+	/**
+	 * Kind of the QBF instances, holding only the matrix of coefficients.
+	 */
+	public static final int QBF = 1;
+
+	/**
+	 * Kind of the SC-QBF instances, holding the subsets and the matrix of
+	 * coefficients.
+	 */
+	public static final int SC_QBF = 2;
+
+	/**
+	 * whether caches are read and written.
+	 */
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("instances.cache", "true"));
+
+	private static final int MAGIC = 0x4e494254; // "TBIN"
+
+	private static final int VERSION = 2;
+
+	private static final int HEADER_SIZE = 48;
+
+	/**
+	 * The contents of an instance.
+	 */
+	public static class Instance {
+
+		/**
+		 * the dimension of the domain.
+		 */
+		public final int n;
+
+		/**
+		 * the position of the first nonzero coefficient of each row of the
+		 * upper triangle, followed by the number of nonzero coefficients.
+		 */
+		public final int[] offsets;
+
+		/**
+		 * the column of each nonzero coefficient, increasing along each row.
+		 */
+		public final int[] columns;
+
+		/**
+		 * the value of each nonzero coefficient.
+		 */
+		public final double[] values;
+
+		/**
+		 * the elements of each subset, or null for instances without subsets.
+		 */
+		public final int[][] subsets;
+
+		/**
+		 * Constructor for the Instance class.
+		 *
+		 * @param n
+		 *            the dimension of the domain.
+		 * @param offsets
+		 *            the position of the first nonzero coefficient of each
+		 *            row of the upper triangle, followed by the number of
+		 *            nonzero coefficients.
+		 * @param columns
+		 *            the column of each nonzero coefficient, increasing along
+		 *            each row.
+		 * @param values
+		 *            the value of each nonzero coefficient.
+		 * @param subsets
+		 *            the elements of each subset, or null for instances
+		 *            without subsets.
+		 */
+		public Instance(int n, int[] offsets, int[] columns, double[] values, int[][] subsets) {
+			this.n = n;
+			this.offsets = offsets;
+			this.columns = columns;
+			this.values = values;
+			this.subsets = subsets;
+		}
+
+	}
+
+	/**
+	 * Reads the cache of a text instance, if it is up to date.
+	 *
+	 * @param filename
+	 *            the name of the text instance.
+	 * @param kind
+	 *            the kind of the instance ({@link #QBF} or {@link #SC_QBF}).
+	 * @return the cached instance, or null if caching is disabled or there is
+	 *         no up to date cache.
+	 */
+	public static Instance read(String filename, int kind) {
+		if (!ENABLED)
+			return null;
+		Path source = Paths.get(filename);
+		Path cache = cachePath(source);
+		try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+				return null;
+			ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+			if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getInt(8) != kind)
+				return null;
+			int n = buf.getInt(12);
+			int nnz = buf.getInt(40);
+			int coefficients = buf.getInt(44);
+			if (n < 0 || nnz < 0 || coefficients < 0
+					|| size != HEADER_SIZE + payloadSize(n, kind, nnz, coefficients))
+				return null;
+			if (!isUpToDate(source, buf.getLong(16), buf.getLong(24), buf.getLong(32)))
+				return null;
+
+			buf.position(HEADER_SIZE);
+			double[] values = new double[coefficients];
+			buf.asDoubleBuffer().get(values);
+			buf.position(HEADER_SIZE + 8 * coefficients);
+			IntBuffer ints = buf.asIntBuffer();
+			int[] offsets = new int[n + 1];
+			int[] columns = new int[coefficients];
+			ints.get(offsets).get(columns);
+			if (!isValid(offsets, coefficients))
+				return null;
+
+			int[][] subsets = null;
+			if (kind == SC_QBF) {
+				int[] subsetOffsets = new int[n + 1];
+				ints.get(subsetOffsets);
+				if (!isValid(subsetOffsets, nnz))
+					return null;
+				subsets = new int[n][];
+				for (int s = 0; s < n; s++) {
+					subsets[s] = new int[subsetOffsets[s + 1] - subsetOffsets[s]];
+					ints.get(subsets[s]);
+				}
+			}
+			return new Instance(n, offsets, columns, values, subsets);
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the cache of a text instance. Errors are ignored, as the cache
+	 * is only an optimization.
+	 *
+	 * @param filename
+	 *            the name of the text instance.
+	 * @param kind
+	 *            the kind of the instance ({@link #QBF} or {@link #SC_QBF}).
+	 * @param instance
+	 *            the contents of the instance.
+	 */
+	public static void write(String filename, int kind, Instance instance) {
+		if (!ENABLED)
+			return;
+		Path source = Paths.get(filename);
+		Path cache = cachePath(source);
+		Path tmp = null;
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+			long hash = hash(source);
+			int n = instance.n;
+			long nnz = 0;
+			if (kind == SC_QBF) {
+				for (int[] subset : instance.subsets) {
+					nnz += subset.length;
+				}
+			}
+			int coefficients = instance.offsets[n];
+			long size = HEADER_SIZE + payloadSize(n, kind, nnz, coefficients);
+			if (size > Integer.MAX_VALUE)
+				return;
+
+			ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+			buf.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(n);
+			buf.putLong(attrs.size()).putLong(attrs.lastModifiedTime().toMillis()).putLong(hash);
+			buf.putInt((int) nnz).putInt(coefficients);
+
+			buf.asDoubleBuffer().put(instance.values, 0, coefficients);
+			buf.position(HEADER_SIZE + 8 * coefficients);
+			IntBuffer ints = buf.asIntBuffer();
+			ints.put(instance.offsets, 0, n + 1).put(instance.columns, 0, coefficients);
+			if (kind == SC_QBF) {
+				int offset = 0;
+				for (int[] subset : instance.subsets) {
+					ints.put(offset);
+					offset += subset.length;
+				}
+				ints.put(offset);
+				for (int[] subset : instance.subsets) {
+					ints.put(subset);
+				}
+			}
+
+			tmp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+			Files.write(tmp, buf.array());
+			try {
+				Files.move(tmp, cache, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING);
+			}
+			tmp = null;
+		} catch (IOException | RuntimeException e) {
+			// the instance is parsed again the next time
+		} finally {
+			if (tmp != null) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException e) {
+					// nothing else to do
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gives the path of the cache of a text instance.
+	 *
+	 * @param source
+	 *            the path of the text instance.
+	 * @return the path of its cache.
+	 */
+	public static Path cachePath(Path source) {
+		return source.resolveSibling(source.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * Checks whether a text instance still matches the values recorded in a
+	 * cache. The contents are only hashed when the modification time
+	 * differs, e.g., after the instance is copied.
+	 */
+	private static boolean isUpToDate(Path source, long length, long modified, long hash) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+		if (attrs.size() != length)
+			return false;
+		return attrs.lastModifiedTime().toMillis() == modified || hash(source) == hash;
+	}
+
+	/**
+	 * Hashes the contents of a file, eight bytes at a time.
+	 */
+	private static long hash(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException(file + ": instance files larger than 2GB are not supported");
+			ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+			long h = 0xcbf29ce484222325L ^ size;
+			int pos = 0;
+			for (; pos + 8 <= size; pos += 8) {
+				h = (h ^ buf.getLong(pos)) * 0x100000001b3L;
+				h ^= h >>> 29;
+			}
+			for (; pos < size; pos++) {
+				h = (h ^ buf.get(pos)) * 0x100000001b3L;
+			}
+			return h ^ (h >>> 32);
+		}
+	}
+
+	/**
+	 * Checks whether the offsets of compressed rows are consistent with the
+	 * number of entries.
+	 */
+	private static boolean isValid(int[] offsets, int entries) {
+		if (offsets[0] != 0 || offsets[offsets.length - 1] != entries)
+			return false;
+		for (int i = 1; i < offsets.length; i++) {
+			if (offsets[i] < offsets[i - 1])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the size in bytes of the contents of a cache, after its header.
+	 */
+	private static long payloadSize(int n, int kind, long nnz, long coefficients) {
+		long size = 12 * coefficients + 4 * (n + 1L);
+		if (kind == SC_QBF)
+			size += 4 * (n + 1 + nnz);
+		return size;
+	}
+
+}
@@ -0,0 +1,56 @@
+package problems;
+
+import java.io.IOException;
+
+/**
+ * Signals that an instance file is malformed. The message gives the name of
+ * the file and the line and column (both starting at 1) where the problem was
+ * found.
+ */
+public class InstanceFormatException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * the line of the problem, starting at 1.
+	 */
+	private final int line;
+
+	/**
+	 * the column of the problem, starting at 1.
+	 */
+	private final int column;
+
+	/**
+	 * Constructor for the InstanceFormatException class.
+	 * 
+	 * @param filename
+	 *            the name of the instance file.
+	 * @param line
+	 *            the line of the problem, starting at 1.
+	 * @param column
+	 *            the column of the problem, starting at 1.
+	 * @param message
+	 *            the description of the problem.
+	 */
+	public InstanceFormatException(String filename, int line, int column, String message) {
+		super(filename + ":" + line + ":" + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * @return the line of the problem, starting at 1.
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column of the problem, starting at 1.
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+}
@@ -0,0 +1,229 @@
+package problems;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parser of the numbers of an instance file, separated by white space. The
+ * file is memory-mapped through a {@link FileChannel} and scanned byte by
+ * byte, and each number is converted straight into a primitive value, with
+ * no intermediate tokens or strings.
+ *
+ * Numbers are an optional minus sign followed by digits with at most one
+ * decimal point, and are converted exactly as {@link java.io.StreamTokenizer}
+ * does, so instances read by this parser hold the same values as before. Any
+ * other content (letters, exponents, a missing number at the end of the
+ * file, ...) is reported by an {@link InstanceFormatException} with its line
+ * and column.
+ */
+public class InstanceParser implements Closeable {
+
+	/**
+	 * the name of the file being parsed.
+	 */
+	private final String filename;
+
+	/**
+	 * the channel of the file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * the contents of the file.
+	 */
+	private final ByteBuffer buf;
+
+	/**
+	 * the position of the next byte.
+	 */
+	private int pos;
+
+	/**
+	 * the current line, starting at 1.
+	 */
+	private int line = 1;
+
+	/**
+	 * the position of the first byte of the current line.
+	 */
+	private int lineStart;
+
+	/**
+	 * Opens an instance file.
+	 *
+	 * @param filename
+	 *            the name of the file.
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	public InstanceParser(String filename) throws IOException {
+		this.filename = filename;
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			channel.close();
+			throw new IOException(filename + ": instance files larger than 2GB are not supported");
+		}
+		this.buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+
+	/**
+	 * Checks whether there is another number in the file.
+	 *
+	 * @return true if some non white space content remains.
+	 */
+	public boolean hasNext() {
+		skipWhitespace();
+		return pos < buf.limit();
+	}
+
+	/**
+	 * Parses the next number.
+	 *
+	 * @return the value of the number.
+	 * @throws InstanceFormatException
+	 *             if the next token is missing or is not a number.
+	 */
+	public double nextDouble() throws InstanceFormatException {
+		skipWhitespace();
+		int start = pos;
+		final int limit = buf.limit();
+		if (pos >= limit)
+			throw error(start, "unexpected end of file, a number was expected");
+
+		boolean neg = false;
+		if (buf.get(pos) == '-') {
+			neg = true;
+			pos++;
+		}
+
+		/* Same arithmetic as StreamTokenizer, for identical values */
+		double v = 0;
+		int decexp = 0;
+		int seendot = 0;
+		int digits = 0;
+		while (pos < limit) {
+			int c = buf.get(pos);
+			if (c == '.' && seendot == 0) {
+				seendot = 1;
+			} else if ('0' <= c && c <= '9') {
+				v = v * 10 + (c - '0');
+				decexp += seendot;
+				digits++;
+			} else {
+				break;
+			}
+			pos++;
+		}
+		if (digits == 0 || (pos < limit && buf.get(pos) > ' '))
+			throw error(start, "malformed number '" + token(start) + "'");
+		if (decexp != 0) {
+			double denom = 10;
+			decexp--;
+			while (decexp > 0) {
+				denom *= 10;
+				decexp--;
+			}
+			v = v / denom;
+		}
+		return neg ? -v : v;
+	}
+
+	/**
+	 * Parses the next number, which must be an integer.
+	 *
+	 * @return the value of the number.
+	 * @throws InstanceFormatException
+	 *             if the next token is missing or is not an integer.
+	 */
+	public int nextInt() throws InstanceFormatException {
+		skipWhitespace();
+		int start = pos;
+		double v = nextDouble();
+		if (v != Math.rint(v) || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE)
+			throw error(start, "integer expected, found '" + token(start) + "'");
+		return (int) v;
+	}
+
+	/**
+	 * Parses the next number, which must be a non negative integer no greater
+	 * than a bound.
+	 *
+	 * @param what
+	 *            a description of the number, for error messages.
+	 * @param max
+	 *            the largest value allowed.
+	 * @return the value of the number.
+	 * @throws InstanceFormatException
+	 *             if the next token is missing or is not an integer within
+	 *             the bounds.
+	 */
+	public int nextInt(String what, int max) throws InstanceFormatException {
+		skipWhitespace();
+		int start = pos;
+		int v = nextInt();
+		if (v < 0 || v > max)
+			throw error(start, what + " must be between 0 and " + max + ", found " + v);
+		return v;
+	}
+
+	/**
+	 * Checks that no content remains after the last number.
+	 *
+	 * @throws InstanceFormatException
+	 *             if the file has trailing content.
+	 */
+	public void expectEnd() throws InstanceFormatException {
+		if (hasNext())
+			throw error(pos, "unexpected content '" + token(pos) + "' after the instance");
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Skips white space (any byte up to the space character), keeping track
+	 * of lines.
+	 */
+	private void skipWhitespace() {
+		final int limit = buf.limit();
+		while (pos < limit) {
+			int c = buf.get(pos);
+			if (c > ' ' || c < 0)
+				break;
+			pos++;
+			if (c == '\n') {
+				line++;
+				lineStart = pos;
+			}
+		}
+	}
+
+	/**
+	 * Gives the token starting at a position of the current line.
+	 */
+	private String token(int start) {
+		StringBuilder sb = new StringBuilder();
+		for (int p = start; p < buf.limit() && p < start + 32; p++) {
+			int c = buf.get(p);
+			if (c <= ' ' && c >= 0)
+				break;
+			sb.append((char) (c & 0xff));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates an error at a position of the current line.
+	 */
+	private InstanceFormatException error(int position, String message) {
+		return new InstanceFormatException(filename, line, position - lineStart + 1, message);
+	}
+
+}
@@ -0,0 +1,128 @@
+package problems.qbf;
+
+/**
+ * A {@link QBFMatrix} stored densely as the full symmetrized matrix W,
+ * row-major in a single contiguous array, i.e., w_ij = a_ij + a_ji is at
+ * position i*n + j (and w_ii = a_ii). Every operation over a variable reads
+ * its whole row contiguously, in O(n), through the {@link QBFKernels}, which
+ * are vectorized when the Vector API is available.
+ */
+public class DenseQBFMatrix implements QBFMatrix {
+
+	/**
+	 * The largest dimension for which the matrix still fits in a single
+	 * array.
+	 */
+	public static final int MAX_SIZE = 46340;
+
+	/**
+	 * the dimension of the matrix.
+	 */
+	private final int n;
+
+	/**
+	 * the symmetrized coefficients of the matrix, row-major.
+	 */
+	private final double[] W;
+
+	/**
+	 * the number of nonzero coefficients.
+	 */
+	private final long nonZeros;
+
+	/**
+	 * the loops over the rows.
+	 */
+	private final QBFKernels kernels = QBFKernels.get();
+
+	/**
+	 * Constructor for the DenseQBFMatrix class, from the nonzero coefficients
+	 * of the upper triangle given as compressed sparse rows.
+	 *
+	 * @param n
+	 *            the dimension of the matrix.
+	 * @param offsets
+	 *            the position of the first coefficient of each row, followed
+	 *            by the number of coefficients.
+	 * @param columns
+	 *            the column of each coefficient, no smaller than its row.
+	 * @param values
+	 *            the value of each coefficient.
+	 */
+	public DenseQBFMatrix(int n, int[] offsets, int[] columns, double[] values) {
+		if (n > MAX_SIZE)
+			throw new IllegalArgumentException("dense matrices are limited to n <= " + MAX_SIZE + ": " + n);
+		this.n = n;
+		this.W = new double[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				int j = columns[k];
+				W[i * n + j] = values[k];
+				W[j * n + i] = values[k];
+			}
+		}
+		this.nonZeros = offsets[n];
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return i <= j ? W[i * n + j] : 0.0;
+	}
+
+	@Override
+	public double getDiagonal(int i) {
+		return W[i * n + i];
+	}
+
+	@Override
+	public double getInteraction(int i, int j) {
+		return W[i * n + j];
+	}
+
+	@Override
+	public long getNonZeros() {
+		return nonZeros;
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		double sum = 0.0;
+
+		for (int i = 0, row = 0; i < n; i++, row += n) {
+			if (x[i] == 0)
+				continue;
+			sum += kernels.dot(0.0, W, row + i, x, i, n - i) * x[i];
+		}
+
+		return sum;
+
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+
+		final int row = i * n;
+		double sum = kernels.dot(0.0, W, row, x, 0, i);
+		sum = kernels.dot(sum, W, row + i + 1, x, i + 1, n - i - 1);
+		sum += W[row + i];
+
+		return sum;
+
+	}
+
+	@Override
+	public void addInteractions(int i, double delta, double[] v) {
+
+		final int row = i * n;
+		kernels.axpy(delta, W, row, v, 0, i);
+		kernels.axpy(delta, W, row + i + 1, v, i + 1, n - i - 1);
+
+	}
+
+}
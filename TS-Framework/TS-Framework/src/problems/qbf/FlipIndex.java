@@ -0,0 +1,306 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * Index of the flip moves of a QBF, i.e., of the variation of the objective
+ * function obtained by flipping each variable alone (its insertion delta if
+ * it is 0, or its removal delta if it is 1). The variables are kept in an
+ * indexed binary min-heap ordered by delta, ties broken by an order given by
+ * the owner of the index (e.g., the position of the move in the sequential
+ * enumeration of the neighborhood), so that the best move is found at the
+ * root and a change in the delta of a variable costs O(log n).
+ *
+ * The index is maintained by {@link IncrementalQBF} (see
+ * {@link IncrementalQBF#enableFlipIndex()}), which updates only the
+ * variables whose gain changed after a flip: every variable for dense
+ * storages, and the neighbors of the flipped variable for sparse ones. The
+ * best move satisfying a {@link Filter}, such as a tabu status with
+ * aspiration, is found by {@link #findBest(Filter)}, which visits the heap in
+ * increasing order from the root and only goes past the moves that are
+ * rejected. Longer prefixes of the variables in increasing order are given
+ * by a {@link Walk}.
+ */
+public class FlipIndex {
+
+	/**
+	 * Decides whether a flip move may be chosen.
+	 */
+	@FunctionalInterface
+	public interface Filter {
+
+		/**
+		 * Checks whether a flip move is admissible.
+		 *
+		 * @param i
+		 *            the variable being flipped.
+		 * @param delta
+		 *            the variation of the objective function.
+		 * @return true if the move may be chosen.
+		 */
+		public abstract boolean accept(int i, double delta);
+
+	}
+
+	/**
+	 * Lazy enumeration of the variables in increasing order of delta (and of
+	 * order among equal deltas), which costs O(log k) per variable for the
+	 * first k variables. The index must not be modified during a walk.
+	 */
+	public final class Walk {
+
+		/**
+		 * the heap of the positions still to be visited.
+		 */
+		private int[] frontier = new int[16];
+
+		/**
+		 * the number of positions still to be visited.
+		 */
+		private int size;
+
+		private Walk() {
+			restart();
+		}
+
+		/**
+		 * Restarts the walk from the best variable.
+		 */
+		public void restart() {
+			size = 0;
+			if (n > 0)
+				frontier[size++] = 0;
+		}
+
+		/**
+		 * Gives the next variable of the walk.
+		 *
+		 * @return the next variable, or -1 if every variable was given.
+		 */
+		public int next() {
+
+			if (size == 0)
+				return -1;
+
+			/* Pops the smallest position still to be visited */
+			int p = frontier[0];
+			int last = frontier[--size];
+			int k = 0;
+			while (2 * k + 1 < size) {
+				int c = 2 * k + 1;
+				if (c + 1 < size && less(heap[frontier[c + 1]], heap[frontier[c]]))
+					c++;
+				if (!less(heap[frontier[c]], heap[last]))
+					break;
+				frontier[k] = frontier[c];
+				k = c;
+			}
+			frontier[k] = last;
+
+			/* Its children are the only candidates that became reachable */
+			if (size + 2 > frontier.length)
+				frontier = Arrays.copyOf(frontier, 2 * frontier.length);
+			for (int c = 2 * p + 1; c <= 2 * p + 2 && c < n; c++) {
+				k = size++;
+				while (k > 0 && less(heap[c], heap[frontier[(k - 1) >>> 1]])) {
+					frontier[k] = frontier[(k - 1) >>> 1];
+					k = (k - 1) >>> 1;
+				}
+				frontier[k] = c;
+			}
+
+			return heap[p];
+
+		}
+
+	}
+
+	/**
+	 * the number of variables.
+	 */
+	private final int n;
+
+	/**
+	 * the flip delta of each variable.
+	 */
+	private final double[] delta;
+
+	/**
+	 * the order of each variable among those with the same delta.
+	 */
+	private final long[] order;
+
+	/**
+	 * the variables, in heap order.
+	 */
+	private final int[] heap;
+
+	/**
+	 * the position of each variable in the heap.
+	 */
+	private final int[] position;
+
+	/**
+	 * the walk of {@link #findBest(Filter)}.
+	 */
+	private Walk walk;
+
+	/**
+	 * Constructor for the FlipIndex class. Every variable starts with delta 0
+	 * and order equal to its index.
+	 *
+	 * @param n
+	 *            the number of variables.
+	 */
+	public FlipIndex(int n) {
+		this.n = n;
+		this.delta = new double[n];
+		this.order = new long[n];
+		this.heap = new int[n];
+		this.position = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			heap[i] = i;
+			position[i] = i;
+		}
+	}
+
+	/**
+	 * @return the number of variables.
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Gives the flip delta of a variable.
+	 *
+	 * @param i
+	 *            the variable.
+	 * @return the delta last set for the variable.
+	 */
+	public double getDelta(int i) {
+		return delta[i];
+	}
+
+	/**
+	 * Gives the order of a variable among those with the same delta.
+	 *
+	 * @param i
+	 *            the variable.
+	 * @return the order last set for the variable.
+	 */
+	public long getOrder(int i) {
+		return order[i];
+	}
+
+	/**
+	 * Sets the flip delta of a variable, in O(log n).
+	 *
+	 * @param i
+	 *            the variable.
+	 * @param value
+	 *            the variation of the objective function when flipping it.
+	 */
+	public void update(int i, double value) {
+		if (value == delta[i])
+			return;
+		delta[i] = value;
+		restore(position[i]);
+	}
+
+	/**
+	 * Sets the order of a variable among those with the same delta, in
+	 * O(log n). Smaller orders come first.
+	 *
+	 * @param i
+	 *            the variable.
+	 * @param value
+	 *            the order of the variable.
+	 */
+	public void setOrder(int i, long value) {
+		if (value == order[i])
+			return;
+		order[i] = value;
+		restore(position[i]);
+	}
+
+	/**
+	 * Gives the variable with the smallest delta (and smallest order among
+	 * those), in O(1).
+	 *
+	 * @return the best variable, or -1 if there are no variables.
+	 */
+	public int peek() {
+		return n > 0 ? heap[0] : -1;
+	}
+
+	/**
+	 * Gives the variable with the smallest delta (and smallest order among
+	 * those) accepted by a filter. The heap is visited in increasing order,
+	 * hence the cost is O(r log r), where r is the number of moves rejected
+	 * before the one returned, e.g., bounded by the number of tabu elements
+	 * for a tabu filter.
+	 *
+	 * @param filter
+	 *            the filter of the admissible moves.
+	 * @return the best admissible variable, or -1 if there is none.
+	 */
+	public int findBest(Filter filter) {
+
+		if (walk == null)
+			walk = new Walk();
+		walk.restart();
+		for (int i = walk.next(); i >= 0; i = walk.next()) {
+			if (filter.accept(i, delta[i]))
+				return i;
+		}
+		return -1;
+
+	}
+
+	/**
+	 * Creates a walk over the variables in increasing order.
+	 *
+	 * @return a walk starting from the best variable.
+	 */
+	public Walk walk() {
+		return new Walk();
+	}
+
+	/**
+	 * Compares two variables by delta and then by order.
+	 */
+	private boolean less(int a, int b) {
+		return delta[a] < delta[b] || (delta[a] == delta[b] && order[a] < order[b]);
+	}
+
+	/**
+	 * Moves the variable at a position of the heap up or down until the heap
+	 * order is restored.
+	 */
+	private void restore(int p) {
+
+		int i = heap[p];
+		while (p > 0 && less(i, heap[(p - 1) >>> 1])) {
+			int parent = (p - 1) >>> 1;
+			heap[p] = heap[parent];
+			position[heap[p]] = p;
+			p = parent;
+		}
+		while (2 * p + 1 < n) {
+			int c = 2 * p + 1;
+			if (c + 1 < n && less(heap[c + 1], heap[c]))
+				c++;
+			if (!less(heap[c], i))
+				break;
+			heap[p] = heap[c];
+			position[heap[p]] = p;
+			p = c;
+		}
+		heap[p] = i;
+		position[i] = p;
+
+	}
+
+}
@@ -0,0 +1,417 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+import problems.EvaluationSession;
+import solutions.Solution;
+
+/**
+ * Incremental evaluator for a {@link QBF}. For every variable i it keeps the
+ * gain g_i = a_ii + \sum_{j != i}{x_j*(a_ij + a_ji)}, which is the variation of
+ * f(x) obtained by setting x_i to 1 while every other variable is kept fixed.
+ * With the gain vector at hand, the variation of inserting, removing or
+ * exchanging elements is answered in O(1), whereas flipping a variable updates
+ * the gain vector in O(n), or in O(degree) when the matrix is stored sparsely
+ * (see {@link SparseQBFMatrix}). When the coefficients are integral (see
+ * {@link QuantizedQBFMatrix}) the gains are kept as exact integers. This
+ * replaces the O(n) row/column scan that
+ * {@link QBF} performs (after resetting all the variables) for every single
+ * move evaluation. The session may also keep the flip delta of every
+ * variable in a {@link FlipIndex}, see {@link #enableFlipIndex()}.
+ * 
+ * Instances are obtained through {@link QBF#newSession()}, and the methods
+ * that take a whole solution are delegated to the underlying QBF.
+ */
+public class IncrementalQBF implements EvaluationSession<Integer> {
+
+	/**
+	 * The QBF whose coefficients are being evaluated.
+	 */
+	protected final QBF qbf;
+
+	/**
+	 * The matrix of coefficients of the QBF.
+	 */
+	protected final QBFMatrix matrix;
+
+	/**
+	 * Dimension of the domain.
+	 */
+	protected final int size;
+
+	/**
+	 * The gain of each variable, as defined in the class description, or null
+	 * if the gains are integral.
+	 */
+	protected final double[] gains;
+
+	/**
+	 * The integral gain of each variable, kept instead of {@link #gains} when
+	 * the matrix is quantized, or null otherwise.
+	 */
+	protected final long[] integralGains;
+
+	/**
+	 * The matrix, if it is quantized.
+	 */
+	private final QuantizedQBFMatrix quantized;
+
+	/**
+	 * The current value of each variable.
+	 */
+	protected final boolean[] x;
+
+	/**
+	 * The orientation of the evaluated function, 1.0 for the QBF itself and
+	 * -1.0 for its inverse ({@link QBF_Inverse}).
+	 */
+	protected final double sign;
+
+	/**
+	 * The index of the flip deltas, maintained once enabled by
+	 * {@link #enableFlipIndex()}, or null.
+	 */
+	protected FlipIndex flipIndex;
+
+	/**
+	 * The buffer of the neighbors of a flipped variable, allocated along with
+	 * the index.
+	 */
+	private int[] neighbors;
+
+	/**
+	 * Constructor for the IncrementalQBF class. The evaluator starts bound to
+	 * the empty solution.
+	 *
+	 * @param qbf
+	 *            The QBF providing the matrix of coefficients.
+	 * @param inverse
+	 *            Whether the variations should be reported for the inverse of
+	 *            the QBF, as done by {@link QBF_Inverse}.
+	 */
+	public IncrementalQBF(QBF qbf, boolean inverse) {
+		this.qbf = qbf;
+		this.matrix = qbf.getMatrix();
+		this.size = qbf.getDomainSize();
+		this.quantized = matrix instanceof QuantizedQBFMatrix ? (QuantizedQBFMatrix) matrix : null;
+		this.gains = quantized == null ? new double[size] : null;
+		this.integralGains = quantized != null ? new long[size] : null;
+		this.x = new boolean[size];
+		this.sign = inverse ? -1.0 : 1.0;
+		clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.Evaluator#getDomainSize()
+	 */
+	@Override
+	public Integer getDomainSize() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.Evaluator#evaluate(solutions.Solution)
+	 */
+	@Override
+	public Double evaluate(Solution<Integer> sol) {
+		return qbf.evaluate(sol);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.Evaluator#evaluateInsertionCost(java.lang.Object,
+	 * solutions.Solution)
+	 */
+	@Override
+	public Double evaluateInsertionCost(Integer elem, Solution<Integer> sol) {
+		return qbf.evaluateInsertionCost(elem, sol);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.Evaluator#evaluateRemovalCost(java.lang.Object,
+	 * solutions.Solution)
+	 */
+	@Override
+	public Double evaluateRemovalCost(Integer elem, Solution<Integer> sol) {
+		return qbf.evaluateRemovalCost(elem, sol);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.Evaluator#evaluateExchangeCost(java.lang.Object,
+	 * java.lang.Object, solutions.Solution)
+	 */
+	@Override
+	public Double evaluateExchangeCost(Integer elemIn, Integer elemOut, Solution<Integer> sol) {
+		return qbf.evaluateExchangeCost(elemIn, elemOut, sol);
+	}
+
+	/**
+	 * {@inheritDoc} The variables and the gain vector are recomputed from
+	 * scratch, which costs O(n*|sol|). A null solution stands for the empty
+	 * solution.
+	 */
+	@Override
+	public void bind(Solution<Integer> sol) {
+
+		/* The index is refreshed once, rather than after every flip */
+		FlipIndex index = flipIndex;
+		flipIndex = null;
+		clear();
+		if (sol != null) {
+			for (Integer elem : sol) {
+				if (!x[elem])
+					flip(elem);
+			}
+		}
+		flipIndex = index;
+		if (index != null) {
+			for (int i = 0; i < size; i++) {
+				index.update(i, flipDelta(i));
+			}
+		}
+
+	}
+
+	/**
+	 * Enables the {@link FlipIndex} of the session, which from then on keeps
+	 * the flip delta of every variable, as reported by
+	 * {@link #evaluateInsertionQBF(int)} or {@link #evaluateRemovalQBF(int)}.
+	 * Every flip then updates the index for the flipped variable and its
+	 * neighbors (see {@link QBFMatrix#getNeighbors(int, int[])}), in
+	 * O(degree*log n). The order of the variables in the index is left to
+	 * the caller.
+	 *
+	 * @return the index, which is created on the first call.
+	 */
+	public FlipIndex enableFlipIndex() {
+
+		if (flipIndex == null) {
+			flipIndex = new FlipIndex(size);
+			neighbors = new int[size];
+			for (int i = 0; i < size; i++) {
+				flipIndex.update(i, flipDelta(i));
+			}
+		}
+		return flipIndex;
+
+	}
+
+	/**
+	 * Gives the index of the flip deltas.
+	 *
+	 * @return the index, or null if it was not enabled.
+	 */
+	public FlipIndex getFlipIndex() {
+		return flipIndex;
+	}
+
+	/**
+	 * Sets every variable to 0, in which case the gain of each variable is the
+	 * diagonal coefficient a_ii.
+	 */
+	private void clear() {
+
+		Arrays.fill(x, false);
+		for (int i = 0; i < size; i++) {
+			if (quantized != null)
+				integralGains[i] = quantized.getIntegralDiagonal(i);
+			else
+				gains[i] = matrix.getDiagonal(i);
+		}
+
+	}
+
+	/**
+	 * Checks whether a variable is currently set to 1.
+	 *
+	 * @param i
+	 *            index of the variable.
+	 * @return true if the element belongs to the tracked solution.
+	 */
+	public boolean contains(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Flips the value of a variable, updating the gain of every other variable
+	 * accordingly.
+	 *
+	 * @param i
+	 *            index of the variable being flipped.
+	 */
+	public void flip(int i) {
+
+		if (quantized != null)
+			quantized.addInteractions(i, x[i] ? -1L : 1L, integralGains);
+		else
+			matrix.addInteractions(i, x[i] ? -1.0 : 1.0, gains);
+		x[i] = !x[i];
+
+		if (flipIndex != null) {
+			flipIndex.update(i, flipDelta(i));
+			for (int k = 0, m = matrix.getNeighbors(i, neighbors); k < m; k++) {
+				flipIndex.update(neighbors[k], flipDelta(neighbors[k]));
+			}
+		}
+
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.EvaluationSession#evaluateInsertion(java.lang.Object)
+	 */
+	@Override
+	public double evaluateInsertion(Integer elem) {
+		return evaluateInsertionQBF(elem);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.EvaluationSession#evaluateRemoval(java.lang.Object)
+	 */
+	@Override
+	public double evaluateRemoval(Integer elem) {
+		return evaluateRemovalQBF(elem);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.EvaluationSession#evaluateExchange(java.lang.Object,
+	 * java.lang.Object)
+	 */
+	@Override
+	public double evaluateExchange(Integer elemIn, Integer elemOut) {
+		return evaluateExchangeQBF(elemIn, elemOut);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.EvaluationSession#applyInsertion(java.lang.Object)
+	 */
+	@Override
+	public void applyInsertion(Integer elem) {
+		if (!x[elem])
+			flip(elem);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.EvaluationSession#applyRemoval(java.lang.Object)
+	 */
+	@Override
+	public void applyRemoval(Integer elem) {
+		if (x[elem])
+			flip(elem);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.EvaluationSession#applyExchange(java.lang.Object,
+	 * java.lang.Object)
+	 */
+	@Override
+	public void applyExchange(Integer elemIn, Integer elemOut) {
+		applyRemoval(elemOut);
+		applyInsertion(elemIn);
+	}
+
+	/**
+	 * Determines the variation of the objective function resulting from the
+	 * insertion of an element. Same semantics as
+	 * {@link QBF#evaluateInsertionQBF(int)}.
+	 *
+	 * @param i
+	 *            Index of the element being inserted into the solution.
+	 * @return The variation of the objective function.
+	 */
+	public double evaluateInsertionQBF(int i) {
+
+		if (x[i])
+			return 0.0;
+
+		return sign * gain(i);
+	}
+
+	/**
+	 * Determines the variation of the objective function resulting from the
+	 * removal of an element. Same semantics as
+	 * {@link QBF#evaluateRemovalQBF(int)}.
+	 *
+	 * @param i
+	 *            Index of the element being removed from the solution.
+	 * @return The variation of the objective function.
+	 */
+	public double evaluateRemovalQBF(int i) {
+
+		if (!x[i])
+			return 0.0;
+
+		return -sign * gain(i);
+	}
+
+	/**
+	 * Determines the variation of the objective function resulting from the
+	 * exchange of two elements, computed as g_in - g_out - (a_in,out +
+	 * a_out,in). Same semantics as {@link QBF#evaluateExchangeQBF(int, int)}.
+	 *
+	 * @param in
+	 *            The index of the element that is considered entering the
+	 *            solution.
+	 * @param out
+	 *            The index of the element that is considered exiting the
+	 *            solution.
+	 * @return The variation of the objective function.
+	 */
+	public double evaluateExchangeQBF(int in, int out) {
+
+		if (in == out)
+			return 0.0;
+		if (x[in])
+			return evaluateRemovalQBF(out);
+		if (!x[out])
+			return evaluateInsertionQBF(in);
+
+		if (quantized != null)
+			return sign * (integralGains[in] - integralGains[out] - quantized.getIntegralInteraction(in, out));
+		return sign * (gains[in] - gains[out] - matrix.getInteraction(in, out));
+	}
+
+	/**
+	 * Gives the gain of a variable.
+	 *
+	 * @param i
+	 *            index of the variable.
+	 * @return g_i.
+	 */
+	protected double gain(int i) {
+		return quantized != null ? integralGains[i] : gains[i];
+	}
+
+	/**
+	 * Gives the variation of flipping a variable alone, i.e., its insertion
+	 * or its removal.
+	 *
+	 * @param i
+	 *            index of the variable.
+	 * @return The variation of the objective function.
+	 */
+	protected double flipDelta(int i) {
+		return x[i] ? -sign * gain(i) : sign * gain(i);
+	}
+
+}
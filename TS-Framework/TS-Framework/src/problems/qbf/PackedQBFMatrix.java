@@ -0,0 +1,148 @@
+package problems.qbf;
+
+/**
+ * A {@link QBFMatrix} storing only the n(n+1)/2 coefficients of the upper
+ * triangle, packed row by row in a single array, i.e., row i holds a_ii
+ * followed by the interactions a_ij + a_ji of every j > i. Interactions are
+ * combined once when the matrix is built, so each of them is a single entry,
+ * which halves the memory of {@link DenseQBFMatrix}.
+ *
+ * The operations over a row of a variable i read its packed row
+ * sequentially, through the {@link QBFKernels}, and the interactions with
+ * every j < i (the column of i in the rows above it) with a stride that
+ * shrinks by one from row to row. Rows are traversed in the same order as
+ * by {@link DenseQBFMatrix}, so both storages give the same values (exactly
+ * so with the scalar kernels).
+ */
+public class PackedQBFMatrix implements QBFMatrix {
+
+	/**
+	 * The largest dimension for which the packed triangle still fits in a
+	 * single array.
+	 */
+	public static final int MAX_SIZE = 65535;
+
+	/**
+	 * the dimension of the matrix.
+	 */
+	private final int n;
+
+	/**
+	 * the position of the diagonal coefficient of each row.
+	 */
+	private final int[] rows;
+
+	/**
+	 * the packed coefficients.
+	 */
+	private final double[] packed;
+
+	/**
+	 * the number of nonzero coefficients.
+	 */
+	private final long nonZeros;
+
+	/**
+	 * the loops over the rows.
+	 */
+	private final QBFKernels kernels = QBFKernels.get();
+
+	/**
+	 * Constructor for the PackedQBFMatrix class, from the nonzero
+	 * coefficients of the upper triangle given as compressed sparse rows.
+	 *
+	 * @param n
+	 *            the dimension of the matrix.
+	 * @param offsets
+	 *            the position of the first coefficient of each row, followed
+	 *            by the number of coefficients.
+	 * @param columns
+	 *            the column of each coefficient, no smaller than its row.
+	 * @param values
+	 *            the value of each coefficient.
+	 */
+	public PackedQBFMatrix(int n, int[] offsets, int[] columns, double[] values) {
+		if (n > MAX_SIZE)
+			throw new IllegalArgumentException("packed matrices are limited to n <= " + MAX_SIZE + ": " + n);
+		this.n = n;
+		this.rows = new int[n];
+		for (int i = 1; i < n; i++) {
+			rows[i] = rows[i - 1] + n - (i - 1);
+		}
+		this.packed = new double[(int) ((long) n * (n + 1) / 2)];
+		for (int i = 0; i < n; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				packed[rows[i] + columns[k] - i] = values[k];
+			}
+		}
+		this.nonZeros = offsets[n];
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return i <= j ? packed[rows[i] + j - i] : 0.0;
+	}
+
+	@Override
+	public double getDiagonal(int i) {
+		return packed[rows[i]];
+	}
+
+	@Override
+	public double getInteraction(int i, int j) {
+		return i < j ? packed[rows[i] + j - i] : packed[rows[j] + i - j];
+	}
+
+	@Override
+	public long getNonZeros() {
+		return nonZeros;
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		double sum = 0.0;
+
+		for (int i = 0; i < n; i++) {
+			if (x[i] == 0)
+				continue;
+			sum += kernels.dot(0.0, packed, rows[i], x, i, n - i) * x[i];
+		}
+
+		return sum;
+
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+
+		double sum = 0.0;
+
+		/* Column of i in the rows above it */
+		for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+			sum += x[j] * packed[p];
+		}
+		/* Row of i, after the diagonal */
+		sum = kernels.dot(sum, packed, rows[i] + 1, x, i + 1, n - i - 1);
+		sum += packed[rows[i]];
+
+		return sum;
+
+	}
+
+	@Override
+	public void addInteractions(int i, double delta, double[] v) {
+
+		for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+			v[j] += delta * packed[p];
+		}
+		kernels.axpy(delta, packed, rows[i] + 1, v, i + 1, n - i - 1);
+
+	}
+
+}
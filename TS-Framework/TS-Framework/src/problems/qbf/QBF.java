@@ -1,12 +1,10 @@
 package problems.qbf;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.util.Arrays;
 import problems.Evaluator;
+import problems.InstanceCache;
+import problems.InstanceParser;
 import solutions.Solution;
 
 /**
@@ -31,14 +29,17 @@ public class QBF implements Evaluator<Integer> {
 	public final Integer size;
 
 	/**
-	 * The array of numbers representing the domain.
+	 * The array of numbers representing the domain. Each entry is either 0.0
+	 * or 1.0.
 	 */
-	public final Double[] variables;
+	public final double[] variables;
 
 	/**
-	 * The matrix A of coefficients for the QBF f(x) = x'.A.x
+	 * The matrix A of coefficients for the QBF f(x) = x'.A.x, stored as a
+	 * packed triangle or sparsely according to its density (see
+	 * {@link QBFMatrix}).
 	 */
-	public Double[][] A;
+	protected QBFMatrix matrix;
 
 	/**
 	 * The constructor for QuadracticBinaryFunction class. The filename of the
@@ -100,28 +101,33 @@ public class QBF implements Evaluator<Integer> {
 
 	}
 
+	/**
+	 * Opens an evaluation session for this QBF, which evaluates moves
+	 * against a bound solution through its gain vector.
+	 * 
+	 * @return a new session, bound to the empty solution.
+	 */
+	public IncrementalQBF newSession() {
+		return new IncrementalQBF(this, false);
+	}
+
 	/**
 	 * Evaluates a QBF by calculating the matrix multiplication that defines the
 	 * QBF: f(x) = x'.A.x .
 	 * 
 	 * @return The value of the QBF.
 	 */
-	public Double evaluateQBF() {
-
-		Double aux = (double) 0, sum = (double) 0;
-		Double vecAux[] = new Double[size];
-
-		for (int i = 0; i < size; i++) {
-			for (int j = 0; j < size; j++) {
-				aux += variables[j] * A[i][j];
-			}
-			vecAux[i] = aux;
-			sum += aux * variables[i];
-			aux = (double) 0;
-		}
-
-		return sum;
+	public double evaluateQBF() {
+		return matrix.evaluate(variables);
+	}
 
+	/**
+	 * Gives the matrix of coefficients of the QBF.
+	 * 
+	 * @return the matrix A.
+	 */
+	public QBFMatrix getMatrix() {
+		return matrix;
 	}
 
 	/*
@@ -147,7 +153,7 @@ public class QBF implements Evaluator<Integer> {
 	 * @return Ihe variation of the objective function resulting from the
 	 *         insertion.
 	 */
-	public Double evaluateInsertionQBF(int i) {
+	public double evaluateInsertionQBF(int i) {
 
 		if (variables[i] == 1)
 			return 0.0;
@@ -178,7 +184,7 @@ public class QBF implements Evaluator<Integer> {
 	 * @return The variation of the objective function resulting from the
 	 *         removal.
 	 */
-	public Double evaluateRemovalQBF(int i) {
+	public double evaluateRemovalQBF(int i) {
 
 		if (variables[i] == 0)
 			return 0.0;
@@ -214,9 +220,9 @@ public class QBF implements Evaluator<Integer> {
 	 * @return The variation of the objective function resulting from the
 	 *         exchange.
 	 */
-	public Double evaluateExchangeQBF(int in, int out) {
+	public double evaluateExchangeQBF(int in, int out) {
 
-		Double sum = 0.0;
+		double sum = 0.0;
 
 		if (in == out)
 			return 0.0;
@@ -227,7 +233,7 @@ public class QBF implements Evaluator<Integer> {
 
 		sum += evaluateContributionQBF(in);
 		sum -= evaluateContributionQBF(out);
-		sum -= (A[in][out] + A[out][in]);
+		sum -= matrix.getInteraction(in, out);
 
 		return sum;
 	}
@@ -236,7 +242,8 @@ public class QBF implements Evaluator<Integer> {
 	 * Determines the contribution to the QBF objective function from the
 	 * insertion of an element. This method is faster than evaluating the whole
 	 * solution, since it uses the fact that only one line and one column from
-	 * matrix A needs to be evaluated when inserting a new element into the
+	 * matrix A (or only the nonzero interactions of the element, with sparse
+	 * storage) need to be evaluated when inserting a new element into the
 	 * solution. This method is different from {@link #evaluateInsertionQBF(int)},
 	 * since it disregards the fact that the element might already be in the
 	 * solution.
@@ -246,23 +253,15 @@ public class QBF implements Evaluator<Integer> {
 	 * @return the variation of the objective function resulting from the
 	 *         insertion.
 	 */
-	private Double evaluateContributionQBF(int i) {
-
-		Double sum = 0.0;
-
-		for (int j = 0; j < size; j++) {
-			if (i != j)
-				sum += variables[j] * (A[i][j] + A[j][i]);
-		}
-		sum += A[i][i];
-
-		return sum;
+	private double evaluateContributionQBF(int i) {
+		return matrix.contribution(variables, i);
 	}
 
 	/**
 	 * Responsible for setting the QBF function parameters by reading the
 	 * necessary input from an external file. this method reads the domain's
-	 * dimension and matrix {@link #A}.
+	 * dimension and matrix {@link #matrix}, from the binary cache of the file
+	 * if it is up to date (see {@link InstanceCache}).
 	 * 
 	 * @param filename
 	 *            Name of the file containing the input for setting the black
@@ -273,23 +272,63 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	protected Integer readInput(String filename) throws IOException {
 
-		Reader fileInst = new BufferedReader(new FileReader(filename));
-		StreamTokenizer stok = new StreamTokenizer(fileInst);
+		InstanceCache.Instance instance = InstanceCache.read(filename, InstanceCache.QBF);
+		if (instance == null) {
+			try (InstanceParser parser = new InstanceParser(filename)) {
+				int _size = parser.nextInt("the domain size", Integer.MAX_VALUE - 1);
+				instance = readCoefficients(parser, _size, null);
+			}
+			InstanceCache.write(filename, InstanceCache.QBF, instance);
+		}
+
+		matrix = QBFMatrix.fromUpperTriangle(instance.n, instance.offsets, instance.columns, instance.values);
+		return instance.n;
 
-		stok.nextToken();
-		Integer _size = (int) stok.nval;
-		A = new Double[_size][_size];
+	}
 
-		for (int i = 0; i < _size; i++) {
-			for (int j = i; j < _size; j++) {
-				stok.nextToken();
-				A[i][j] = stok.nval;
-				if (j>i)
-					A[j][i] = 0.0;
+	/**
+	 * Reads the upper triangle of the matrix of coefficients, row by row,
+	 * keeping only its nonzero coefficients.
+	 * 
+	 * @param parser
+	 *            the parser of the instance file, positioned at the first
+	 *            coefficient.
+	 * @param n
+	 *            the dimension of the domain.
+	 * @param subsets
+	 *            the subsets of the instance, if any.
+	 * @return the contents of the instance.
+	 * @throws IOException
+	 *             if a coefficient is missing or malformed.
+	 */
+	protected static InstanceCache.Instance readCoefficients(InstanceParser parser, int n, int[][] subsets)
+			throws IOException {
+
+		int[] offsets = new int[n + 1];
+		int[] columns = new int[Math.max(16, n)];
+		double[] values = new double[columns.length];
+		int count = 0;
+
+		for (int i = 0; i < n; i++) {
+			offsets[i] = count;
+			for (int j = i; j < n; j++) {
+				double a = parser.nextDouble();
+				if (a == 0)
+					continue;
+				if (count == columns.length) {
+					int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * count);
+					if (capacity == count)
+						throw new IOException("too many nonzero coefficients");
+					columns = Arrays.copyOf(columns, capacity);
+					values = Arrays.copyOf(values, capacity);
+				}
+				columns[count] = j;
+				values[count++] = a;
 			}
 		}
+		offsets[n] = count;
 
-		return _size;
+		return new InstanceCache.Instance(n, offsets, columns, values, subsets);
 
 	}
 
@@ -299,8 +338,8 @@ public class QBF implements Evaluator<Integer> {
 	 * 
 	 * @return a pointer to the array of domain variables.
 	 */
-	protected Double[] allocateVariables() {
-		Double[] _variables = new Double[size];
+	protected double[] allocateVariables() {
+		double[] _variables = new double[size];
 		return _variables;
 	}
 
@@ -312,13 +351,13 @@ public class QBF implements Evaluator<Integer> {
 	}
 
 	/**
-	 * Prints matrix {@link #A}.
+	 * Prints matrix {@link #matrix}.
 	 */
 	public void printMatrix() {
 
 		for (int i = 0; i < size; i++) {
 			for (int j = i; j < size; j++) {
-				System.out.print(A[i][j] + " ");
+				System.out.print(matrix.get(i, j) + " ");
 			}
 			System.out.println();
 		}
@@ -335,7 +374,7 @@ public class QBF implements Evaluator<Integer> {
 
 		QBF qbf = new QBF("instances/qbf/qbf040");
 		qbf.printMatrix();
-		Double maxVal = Double.NEGATIVE_INFINITY;
+		double maxVal = Double.NEGATIVE_INFINITY;
 		
 		// evaluates randomly generated values for the domain, saving the best
 		// one.
@@ -347,7 +386,7 @@ public class QBF implements Evaluator<Integer> {
 					qbf.variables[j] = 1.0;
 			}
 			//System.out.println("x = " + Arrays.toString(qbf.variables));
-			Double eval = qbf.evaluateQBF();
+			double eval = qbf.evaluateQBF();
 			//System.out.println("f(x) = " + eval);
 			if (maxVal < eval)
 				maxVal = eval;
@@ -0,0 +1,116 @@
+package problems.qbf;
+
+/**
+ * The inner loops of the QBF matrices over contiguous rows of coefficients:
+ * dot products, for evaluations and contributions, and scaled additions, for
+ * the updates of the gain vector after a flip.
+ *
+ * This class holds the scalar loops, which add the terms one by one in
+ * increasing order. When the {@code jdk.incubator.vector} module is present
+ * (i.e., the JVM is run with {@code --add-modules jdk.incubator.vector}),
+ * {@link #get()} gives instead the SIMD loops of
+ * {@code problems.qbf.VectorQBFKernels}, found in the {@code vector} source
+ * folder, which must be compiled with the same option. SIMD loops add the
+ * terms in a different order, hence a dot product of length m may differ
+ * from the scalar one by at most about m*2^-53 times the sum of the absolute
+ * values of its terms (e.g., below 1e-12 relative to that sum for rows of
+ * up to 4000 coefficients). The scaled additions are exact elementwise
+ * operations and give the same values. The system property
+ * {@code qbf.vector=false} keeps the scalar loops.
+ */
+public class QBFKernels {
+
+	/**
+	 * the kernels in use.
+	 */
+	private static final QBFKernels INSTANCE = load();
+
+	/**
+	 * Gives the kernels in use, which are SIMD when available.
+	 *
+	 * @return the kernels.
+	 */
+	public static QBFKernels get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Checks whether the kernels in use are SIMD.
+	 *
+	 * @return true if the Vector API kernels were loaded.
+	 */
+	public static boolean isVectorized() {
+		return INSTANCE.getClass() != QBFKernels.class;
+	}
+
+	/**
+	 * Loads the SIMD kernels if the Vector API is available and enabled, and
+	 * the scalar kernels otherwise.
+	 */
+	private static QBFKernels load() {
+		if (!Boolean.parseBoolean(System.getProperty("qbf.vector", "true"))
+				|| !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return new QBFKernels();
+		try {
+			return (QBFKernels) Class.forName("problems.qbf.VectorQBFKernels").getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new QBFKernels();
+		}
+	}
+
+	/**
+	 * Constructor for the QBFKernels class, with the scalar loops.
+	 */
+	protected QBFKernels() {
+	}
+
+	/**
+	 * Adds a dot product to an accumulator, acc + \sum_{k < len}{a[aOff+k] *
+	 * b[bOff+k]}.
+	 *
+	 * @param acc
+	 *            the initial value of the sum.
+	 * @param a
+	 *            the first array.
+	 * @param aOff
+	 *            the position of the first term in a.
+	 * @param b
+	 *            the second array.
+	 * @param bOff
+	 *            the position of the first term in b.
+	 * @param len
+	 *            the number of terms.
+	 * @return the sum.
+	 */
+	public double dot(double acc, double[] a, int aOff, double[] b, int bOff, int len) {
+		for (int k = 0; k < len; k++) {
+			acc += b[bOff + k] * a[aOff + k];
+		}
+		return acc;
+	}
+
+	/**
+	 * Adds a scaled array to another one, y[yOff+k] += alpha * a[aOff+k] for
+	 * every k < len.
+	 *
+	 * @param alpha
+	 *            the factor.
+	 * @param a
+	 *            the array being scaled.
+	 * @param aOff
+	 *            the position of the first term in a.
+	 * @param y
+	 *            the array being updated.
+	 * @param yOff
+	 *            the position of the first term in y.
+	 * @param len
+	 *            the number of terms.
+	 */
+	public void axpy(double alpha, double[] a, int aOff, double[] y, int yOff, int len) {
+		for (int k = 0; k < len; k++) {
+			y[yOff + k] += alpha * a[aOff + k];
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package problems.qbf;
+
+/**
+ * The matrix A of coefficients of a {@link QBF}, f(x) = x'.A.x. Instances
+ * only give the upper triangle of A, hence a_ij = 0 for i > j, and the
+ * products of distinct variables are weighted by their interaction a_ij +
+ * a_ji.
+ *
+ * Matrices are stored as a packed triangle of doubles
+ * ({@link PackedQBFMatrix}) or of integers ({@link QuantizedQBFMatrix}), as a
+ * full square array ({@link DenseQBFMatrix}), or as compressed sparse rows
+ * ({@link SparseQBFMatrix}), in which case the operations over a row cost
+ * O(degree) instead of O(n). The storage is chosen by
+ * {@link #fromUpperTriangle}: sparse instances (and those too large for a
+ * packed triangle) are stored sparsely, and the others are packed as
+ * integers whenever every coefficient is integral. Otherwise, they are
+ * stored densely when the SIMD {@link QBFKernels} are available, as the dense
+ * storage gives them the longest contiguous rows, and packed as doubles if
+ * not. The system property
+ * {@code qbf.storage} forces a storage, set to {@code quantized} (which
+ * still falls back to doubles for fractional coefficients), {@code packed},
+ * {@code dense} or {@code sparse}.
+ */
+public interface QBFMatrix {
+
+	/**
+	 * The largest density (fraction of nonzero coefficients in the upper
+	 * triangle) for which sparse storage is chosen.
+	 */
+	double SPARSE_DENSITY = 0.2;
+
+	/**
+	 * Gives the dimension of the matrix.
+	 *
+	 * @return n.
+	 */
+	int size();
+
+	/**
+	 * Gives a coefficient of the matrix.
+	 *
+	 * @param i
+	 *            the row of the coefficient.
+	 * @param j
+	 *            the column of the coefficient.
+	 * @return a_ij.
+	 */
+	double get(int i, int j);
+
+	/**
+	 * Gives a coefficient of the diagonal of the matrix.
+	 *
+	 * @param i
+	 *            the row and column of the coefficient.
+	 * @return a_ii.
+	 */
+	double getDiagonal(int i);
+
+	/**
+	 * Gives the interaction of two distinct variables.
+	 *
+	 * @param i
+	 *            the first variable.
+	 * @param j
+	 *            the second variable, different from i.
+	 * @return a_ij + a_ji.
+	 */
+	double getInteraction(int i, int j);
+
+	/**
+	 * Gives the number of nonzero coefficients of the upper triangle of the
+	 * matrix (including the diagonal).
+	 *
+	 * @return the number of nonzero coefficients.
+	 */
+	long getNonZeros();
+
+	/**
+	 * Evaluates the QBF, x'.A.x.
+	 *
+	 * @param x
+	 *            the variables, each either 0.0 or 1.0.
+	 * @return the value of the QBF.
+	 */
+	double evaluate(double[] x);
+
+	/**
+	 * Determines the contribution of a variable to the QBF, a_ii + \sum_{j !=
+	 * i}{x_j*(a_ij + a_ji)}, regardless of the value of the variable itself.
+	 *
+	 * @param x
+	 *            the variables, each either 0.0 or 1.0.
+	 * @param i
+	 *            the variable.
+	 * @return the contribution of the variable.
+	 */
+	double contribution(double[] x, int i);
+
+	/**
+	 * Adds the interactions of a variable, scaled by a factor, to a vector
+	 * indexed by the other variables, i.e., v_j += delta*(a_ij + a_ji) for
+	 * every j != i.
+	 *
+	 * @param i
+	 *            the variable.
+	 * @param delta
+	 *            the factor of the interactions.
+	 * @param v
+	 *            the vector being updated.
+	 */
+	void addInteractions(int i, double delta, double[] v);
+
+	/**
+	 * Gives the variables that may interact with a variable, i.e., whose
+	 * gains may change when it is flipped. By default these are all the
+	 * other variables, whereas sparse storages give only those with a nonzero
+	 * interaction.
+	 *
+	 * @param i
+	 *            the variable.
+	 * @param neighbors
+	 *            the array receiving the variables, of length at least n.
+	 * @return the number of variables written to the array.
+	 */
+	default int getNeighbors(int i, int[] neighbors) {
+		int m = 0;
+		for (int j = 0, n = size(); j < n; j++) {
+			if (j != i)
+				neighbors[m++] = j;
+		}
+		return m;
+	}
+
+	/**
+	 * Creates a matrix from the nonzero coefficients of its upper triangle,
+	 * given as compressed sparse rows with increasing columns.
+	 *
+	 * @param n
+	 *            the dimension of the matrix.
+	 * @param offsets
+	 *            the position of the first coefficient of each row, followed
+	 *            by the number of coefficients.
+	 * @param columns
+	 *            the column of each coefficient, no smaller than its row.
+	 * @param values
+	 *            the value of each coefficient.
+	 * @return a quantized, packed, dense or sparse matrix, according to the
+	 *         coefficients and the system property {@code qbf.storage}.
+	 */
+	static QBFMatrix fromUpperTriangle(int n, int[] offsets, int[] columns, double[] values) {
+		String storage = System.getProperty("qbf.storage", "auto");
+		if (storage.equals("auto")) {
+			double density = n == 0 ? 1.0 : offsets[n] / ((double) n * (n + 1) / 2);
+			if (density <= SPARSE_DENSITY || n > PackedQBFMatrix.MAX_SIZE)
+				return new SparseQBFMatrix(n, offsets, columns, values);
+			QBFMatrix quantized = QuantizedQBFMatrix.of(n, offsets, columns, values);
+			if (quantized != null)
+				return quantized;
+			storage = QBFKernels.isVectorized() && n <= DenseQBFMatrix.MAX_SIZE ? "dense" : "packed";
+		}
+		switch (storage) {
+		case "quantized":
+			QBFMatrix quantized = QuantizedQBFMatrix.of(n, offsets, columns, values);
+			if (quantized != null)
+				return quantized;
+			// fractional coefficients
+			return new PackedQBFMatrix(n, offsets, columns, values);
+		case "packed":
+			return new PackedQBFMatrix(n, offsets, columns, values);
+		case "dense":
+			return new DenseQBFMatrix(n, offsets, columns, values);
+		case "sparse":
+			return new SparseQBFMatrix(n, offsets, columns, values);
+		default:
+			throw new IllegalArgumentException("qbf.storage must be quantized, packed, dense, sparse or auto: "
+					+ storage);
+		}
+	}
+
+}
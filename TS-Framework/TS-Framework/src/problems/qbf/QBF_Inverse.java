@@ -25,11 +25,19 @@ public class QBF_Inverse extends QBF {
 	}
 
 
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#newSession()
+	 */
+	@Override
+	public IncrementalQBF newSession() {
+		return new IncrementalQBF(this, true);
+	}
+
 	/* (non-Javadoc)
 	 * @see problems.qbf.QBF#evaluate()
 	 */
 	@Override
-	public Double evaluateQBF() {
+	public double evaluateQBF() {
 		return -super.evaluateQBF();
 	}
 	
@@ -37,7 +45,7 @@ public class QBF_Inverse extends QBF {
 	 * @see problems.qbf.QBF#evaluateInsertion(int)
 	 */
 	@Override
-	public Double evaluateInsertionQBF(int i) {	
+	public double evaluateInsertionQBF(int i) {	
 		return -super.evaluateInsertionQBF(i);
 	}
 	
@@ -45,7 +53,7 @@ public class QBF_Inverse extends QBF {
 	 * @see problems.qbf.QBF#evaluateRemoval(int)
 	 */
 	@Override
-	public Double evaluateRemovalQBF(int i) {
+	public double evaluateRemovalQBF(int i) {
 		return -super.evaluateRemovalQBF(i);
 	}
 	
@@ -53,7 +61,7 @@ public class QBF_Inverse extends QBF {
 	 * @see problems.qbf.QBF#evaluateExchange(int, int)
 	 */
 	@Override
-	public Double evaluateExchangeQBF(int in, int out) {
+	public double evaluateExchangeQBF(int in, int out) {
 		return -super.evaluateExchangeQBF(in,out);
 	}
 
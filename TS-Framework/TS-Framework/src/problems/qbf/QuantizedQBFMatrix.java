@@ -0,0 +1,350 @@
+package problems.qbf;
+
+/**
+ * A {@link QBFMatrix} of integral coefficients, packed like
+ * {@link PackedQBFMatrix} in the narrowest primitive array that holds all of
+ * them ({@code byte[]}, {@code short[]} or {@code int[]}). Sums of
+ * coefficients are accumulated in {@code long}, so they are exact, and the
+ * row operations read 2 to 8 times fewer bytes than with doubles.
+ *
+ * Besides the operations of {@link QBFMatrix}, the matrix updates integral
+ * vectors through {@link #addInteractions(int, long, long[])}, which is used
+ * by {@link IncrementalQBF} to keep exact gains.
+ */
+public abstract class QuantizedQBFMatrix implements QBFMatrix {
+
+	/**
+	 * the dimension of the matrix.
+	 */
+	protected final int n;
+
+	/**
+	 * the position of the diagonal coefficient of each row.
+	 */
+	protected final int[] rows;
+
+	/**
+	 * the number of nonzero coefficients.
+	 */
+	private final long nonZeros;
+
+	/**
+	 * Constructor for the QuantizedQBFMatrix class.
+	 *
+	 * @param n
+	 *            the dimension of the matrix.
+	 * @param nonZeros
+	 *            the number of nonzero coefficients.
+	 */
+	protected QuantizedQBFMatrix(int n, long nonZeros) {
+		if (n > PackedQBFMatrix.MAX_SIZE)
+			throw new IllegalArgumentException("packed matrices are limited to n <= " + PackedQBFMatrix.MAX_SIZE
+					+ ": " + n);
+		this.n = n;
+		this.rows = new int[n];
+		for (int i = 1; i < n; i++) {
+			rows[i] = rows[i - 1] + n - (i - 1);
+		}
+		this.nonZeros = nonZeros;
+	}
+
+	/**
+	 * Creates a quantized matrix from the nonzero coefficients of its upper
+	 * triangle, given as compressed sparse rows with increasing columns.
+	 *
+	 * @param n
+	 *            the dimension of the matrix.
+	 * @param offsets
+	 *            the position of the first coefficient of each row, followed
+	 *            by the number of coefficients.
+	 * @param columns
+	 *            the column of each coefficient, no smaller than its row.
+	 * @param values
+	 *            the value of each coefficient.
+	 * @return the matrix in the narrowest array holding the coefficients, or
+	 *         null if some coefficient is not an integer of at most 32 bits.
+	 */
+	public static QuantizedQBFMatrix of(int n, int[] offsets, int[] columns, double[] values) {
+
+		if (n > PackedQBFMatrix.MAX_SIZE)
+			return null;
+
+		double min = 0, max = 0;
+		for (int k = 0; k < offsets[n]; k++) {
+			double v = values[k];
+			if (v != Math.rint(v) || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE)
+				return null;
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+		}
+
+		QuantizedQBFMatrix matrix;
+		if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE)
+			matrix = new Bytes(n, offsets[n]);
+		else if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE)
+			matrix = new Shorts(n, offsets[n]);
+		else
+			matrix = new Ints(n, offsets[n]);
+
+		for (int i = 0; i < n; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				matrix.set(matrix.rows[i] + columns[k] - i, (int) values[k]);
+			}
+		}
+		return matrix;
+
+	}
+
+	/**
+	 * Gives a packed coefficient.
+	 *
+	 * @param p
+	 *            the position of the coefficient.
+	 * @return the coefficient.
+	 */
+	protected abstract int at(int p);
+
+	/**
+	 * Sets a packed coefficient.
+	 *
+	 * @param p
+	 *            the position of the coefficient.
+	 * @param value
+	 *            the coefficient, which fits the array.
+	 */
+	protected abstract void set(int p, int value);
+
+	/**
+	 * Gives the number of bytes of each packed coefficient.
+	 *
+	 * @return 1, 2 or 4.
+	 */
+	public abstract int getBytesPerCoefficient();
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return i <= j ? at(rows[i] + j - i) : 0.0;
+	}
+
+	@Override
+	public double getDiagonal(int i) {
+		return at(rows[i]);
+	}
+
+	@Override
+	public double getInteraction(int i, int j) {
+		return getIntegralInteraction(i, j);
+	}
+
+	/**
+	 * Gives the interaction of two distinct variables, as an integer.
+	 *
+	 * @param i
+	 *            the first variable.
+	 * @param j
+	 *            the second variable, different from i.
+	 * @return a_ij + a_ji.
+	 */
+	public long getIntegralInteraction(int i, int j) {
+		return i < j ? at(rows[i] + j - i) : at(rows[j] + i - j);
+	}
+
+	/**
+	 * Gives a coefficient of the diagonal of the matrix, as an integer.
+	 *
+	 * @param i
+	 *            the row and column of the coefficient.
+	 * @return a_ii.
+	 */
+	public long getIntegralDiagonal(int i) {
+		return at(rows[i]);
+	}
+
+	@Override
+	public long getNonZeros() {
+		return nonZeros;
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		long sum = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (x[i] == 0)
+				continue;
+			long aux = 0;
+			for (int j = i, p = rows[i]; j < n; j++, p++) {
+				if (x[j] != 0)
+					aux += at(p);
+			}
+			sum += aux;
+		}
+
+		return sum;
+
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+
+		long sum = 0;
+
+		for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+			if (x[j] != 0)
+				sum += at(p);
+		}
+		for (int j = i + 1, p = rows[i] + 1; j < n; j++, p++) {
+			if (x[j] != 0)
+				sum += at(p);
+		}
+		sum += at(rows[i]);
+
+		return sum;
+
+	}
+
+	@Override
+	public void addInteractions(int i, double delta, double[] v) {
+
+		for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+			v[j] += delta * at(p);
+		}
+		for (int j = i + 1, p = rows[i] + 1; j < n; j++, p++) {
+			v[j] += delta * at(p);
+		}
+
+	}
+
+	/**
+	 * Adds the interactions of a variable, scaled by an integral factor, to
+	 * an integral vector indexed by the other variables, i.e., v_j +=
+	 * delta*(a_ij + a_ji) for every j != i.
+	 *
+	 * @param i
+	 *            the variable.
+	 * @param delta
+	 *            the factor of the interactions.
+	 * @param v
+	 *            the vector being updated.
+	 */
+	public void addInteractions(int i, long delta, long[] v) {
+
+		if (delta == 1) {
+			for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+				v[j] += at(p);
+			}
+			for (int j = i + 1, p = rows[i] + 1; j < n; j++, p++) {
+				v[j] += at(p);
+			}
+		} else if (delta == -1) {
+			for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+				v[j] -= at(p);
+			}
+			for (int j = i + 1, p = rows[i] + 1; j < n; j++, p++) {
+				v[j] -= at(p);
+			}
+		} else {
+			for (int j = 0, p = i; j < i; p += n - 1 - j, j++) {
+				v[j] += delta * at(p);
+			}
+			for (int j = i + 1, p = rows[i] + 1; j < n; j++, p++) {
+				v[j] += delta * at(p);
+			}
+		}
+
+	}
+
+	/**
+	 * Coefficients of 8 bits.
+	 */
+	private static final class Bytes extends QuantizedQBFMatrix {
+
+		private final byte[] packed;
+
+		Bytes(int n, long nonZeros) {
+			super(n, nonZeros);
+			this.packed = new byte[(int) ((long) n * (n + 1) / 2)];
+		}
+
+		@Override
+		protected int at(int p) {
+			return packed[p];
+		}
+
+		@Override
+		protected void set(int p, int value) {
+			packed[p] = (byte) value;
+		}
+
+		@Override
+		public int getBytesPerCoefficient() {
+			return 1;
+		}
+
+	}
+
+	/**
+	 * Coefficients of 16 bits.
+	 */
+	private static final class Shorts extends QuantizedQBFMatrix {
+
+		private final short[] packed;
+
+		Shorts(int n, long nonZeros) {
+			super(n, nonZeros);
+			this.packed = new short[(int) ((long) n * (n + 1) / 2)];
+		}
+
+		@Override
+		protected int at(int p) {
+			return packed[p];
+		}
+
+		@Override
+		protected void set(int p, int value) {
+			packed[p] = (short) value;
+		}
+
+		@Override
+		public int getBytesPerCoefficient() {
+			return 2;
+		}
+
+	}
+
+	/**
+	 * Coefficients of 32 bits.
+	 */
+	private static final class Ints extends QuantizedQBFMatrix {
+
+		private final int[] packed;
+
+		Ints(int n, long nonZeros) {
+			super(n, nonZeros);
+			this.packed = new int[(int) ((long) n * (n + 1) / 2)];
+		}
+
+		@Override
+		protected int at(int p) {
+			return packed[p];
+		}
+
+		@Override
+		protected void set(int p, int value) {
+			packed[p] = value;
+		}
+
+		@Override
+		public int getBytesPerCoefficient() {
+			return 4;
+		}
+
+	}
+
+}
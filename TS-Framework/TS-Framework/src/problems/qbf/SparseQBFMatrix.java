@@ -0,0 +1,197 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * A {@link QBFMatrix} stored as compressed sparse rows of the symmetrized
+ * matrix, i.e., row i lists every j != i with a nonzero interaction a_ij +
+ * a_ji, in increasing order of j, and the diagonal is kept apart. Operations
+ * over a row cost O(degree), and the interaction of two variables is found by
+ * binary search.
+ *
+ * Rows are traversed in the same order as by {@link DenseQBFMatrix}, which
+ * just adds the zero coefficients on top, so both storages give the same
+ * values (exactly so with the scalar kernels).
+ */
+public class SparseQBFMatrix implements QBFMatrix {
+
+	/**
+	 * the dimension of the matrix.
+	 */
+	private final int n;
+
+	/**
+	 * the diagonal of the matrix.
+	 */
+	private final double[] diagonal;
+
+	/**
+	 * the position of the first interaction of each row, followed by the
+	 * number of interactions.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * the position of the first interaction of each row with a larger
+	 * variable.
+	 */
+	private final int[] upper;
+
+	/**
+	 * the other variable of each interaction.
+	 */
+	private final int[] columns;
+
+	/**
+	 * the weight a_ij + a_ji of each interaction.
+	 */
+	private final double[] weights;
+
+	/**
+	 * the number of nonzero coefficients.
+	 */
+	private final long nonZeros;
+
+	/**
+	 * Constructor for the SparseQBFMatrix class, from the nonzero coefficients
+	 * of the upper triangle given as compressed sparse rows.
+	 *
+	 * @param n
+	 *            the dimension of the matrix.
+	 * @param offsets
+	 *            the position of the first coefficient of each row, followed
+	 *            by the number of coefficients.
+	 * @param columns
+	 *            the column of each coefficient, no smaller than its row.
+	 * @param values
+	 *            the value of each coefficient.
+	 */
+	public SparseQBFMatrix(int n, int[] offsets, int[] columns, double[] values) {
+		this.n = n;
+		this.diagonal = new double[n];
+		this.nonZeros = offsets[n];
+
+		/* Degree of each variable, counting both halves of the matrix */
+		int[] degree = new int[n];
+		long interactions = 0;
+		for (int i = 0; i < n; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				int j = columns[k];
+				if (j == i) {
+					diagonal[i] = values[k];
+				} else {
+					degree[i]++;
+					degree[j]++;
+					interactions += 2;
+				}
+			}
+		}
+		if (interactions > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("too many interactions for sparse storage: " + interactions);
+
+		this.offsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			this.offsets[i + 1] = this.offsets[i] + degree[i];
+		}
+		this.upper = new int[n];
+		this.columns = new int[(int) interactions];
+		this.weights = new double[(int) interactions];
+
+		/*
+		 * Row j receives the interactions with every i < j while the rows i
+		 * are scanned, and then its own interactions with larger variables,
+		 * so every row ends up sorted.
+		 */
+		int[] next = Arrays.copyOf(this.offsets, n);
+		for (int i = 0; i < n; i++) {
+			upper[i] = next[i];
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				int j = columns[k];
+				if (j == i)
+					continue;
+				this.columns[next[i]] = j;
+				this.weights[next[i]++] = values[k];
+				this.columns[next[j]] = i;
+				this.weights[next[j]++] = values[k];
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		if (i == j)
+			return diagonal[i];
+		return i < j ? getInteraction(i, j) : 0.0;
+	}
+
+	@Override
+	public double getDiagonal(int i) {
+		return diagonal[i];
+	}
+
+	@Override
+	public double getInteraction(int i, int j) {
+		int k = Arrays.binarySearch(columns, offsets[i], offsets[i + 1], j);
+		return k >= 0 ? weights[k] : 0.0;
+	}
+
+	@Override
+	public long getNonZeros() {
+		return nonZeros;
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		double sum = 0.0;
+
+		for (int i = 0; i < n; i++) {
+			if (x[i] == 0)
+				continue;
+			double aux = x[i] * diagonal[i];
+			for (int k = upper[i], end = offsets[i + 1]; k < end; k++) {
+				aux += x[columns[k]] * weights[k];
+			}
+			sum += aux * x[i];
+		}
+
+		return sum;
+
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+
+		double sum = 0.0;
+
+		for (int k = offsets[i], end = offsets[i + 1]; k < end; k++) {
+			sum += x[columns[k]] * weights[k];
+		}
+		sum += diagonal[i];
+
+		return sum;
+
+	}
+
+	@Override
+	public void addInteractions(int i, double delta, double[] v) {
+
+		for (int k = offsets[i], end = offsets[i + 1]; k < end; k++) {
+			v[columns[k]] += delta * weights[k];
+		}
+
+	}
+
+	@Override
+	public int getNeighbors(int i, int[] neighbors) {
+		int m = offsets[i + 1] - offsets[i];
+		System.arraycopy(columns, offsets[i], neighbors, 0, m);
+		return m;
+	}
+
+}
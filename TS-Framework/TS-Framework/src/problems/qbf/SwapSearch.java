@@ -0,0 +1,318 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * Exact search for the best exchange (swap) move of an {@link IncrementalQBF}
+ * with a {@link FlipIndex}, without enumerating every pair of a variable out
+ * of the solution and one in it. The variation of exchanging in for out is
+ * the sum of their flip deltas, corrected by the interaction a_in,out +
+ * a_out,in, which is zero for most pairs of a sparse matrix. Hence the
+ * search is split in two parts:
+ * <ul>
+ * <li>the interacting pairs, enumerated through the neighbors of each
+ * variable in the solution, in O(n + nnz);</li>
+ * <li>the other pairs, whose variation is the sum of the flip deltas, visited
+ * in increasing order of that sum over the grid of the variables out of the
+ * solution and those in it, each sorted by delta. The grid is visited lazily
+ * from its corner, through a {@link FlipIndex.Walk} for each side, and the
+ * search stops as soon as the next sum exceeds the best admissible
+ * variation found, so that only the pairs rejected by the filter (e.g., by a
+ * tabu status) and the interacting pairs are visited past the best one.</li>
+ * </ul>
+ * Ties are broken by the order of the entering variable in the index, and
+ * then by the order of the leaving one, so the move found is the best one
+ * under the same rule as a complete scan of the pairs in that order.
+ */
+public class SwapSearch {
+
+	/**
+	 * Decides whether an exchange move may be chosen.
+	 */
+	@FunctionalInterface
+	public interface Filter {
+
+		/**
+		 * Checks whether an exchange move is admissible.
+		 *
+		 * @param in
+		 *            the variable entering the solution.
+		 * @param out
+		 *            the variable leaving the solution.
+		 * @param delta
+		 *            the variation of the objective function.
+		 * @return true if the move may be chosen.
+		 */
+		public abstract boolean accept(int in, int out, double delta);
+
+	}
+
+	/**
+	 * the session whose exchanges are searched.
+	 */
+	private final IncrementalQBF session;
+
+	/**
+	 * the flip deltas of the session.
+	 */
+	private final FlipIndex index;
+
+	/**
+	 * the walks over the variables out of the solution (ins) and in it
+	 * (outs).
+	 */
+	private final FlipIndex.Walk insWalk, outsWalk;
+
+	/**
+	 * the prefixes of the variables out of the solution and in it, in
+	 * increasing order of delta, given so far by the walks.
+	 */
+	private int[] ins, outs;
+
+	/**
+	 * the lengths of the prefixes.
+	 */
+	private int numIns, numOuts;
+
+	/**
+	 * whether the walks are over.
+	 */
+	private boolean insDone, outsDone;
+
+	/**
+	 * the heap of the cells of the grid still to be visited, and the sum of
+	 * the deltas of each one.
+	 */
+	private int[] cellIn, cellOut;
+	private double[] cellKey;
+	private int numCells;
+
+	/**
+	 * the buffer of the neighbors of a variable.
+	 */
+	private final int[] neighbors;
+
+	/**
+	 * the best move found.
+	 */
+	private int bestIn, bestOut;
+	private double bestValue;
+
+	/**
+	 * the number of exchanges evaluated by the last search.
+	 */
+	private long evaluations;
+
+	/**
+	 * Constructor for the SwapSearch class.
+	 *
+	 * @param session
+	 *            the session whose exchanges are searched, whose flip index is
+	 *            enabled if it was not.
+	 */
+	public SwapSearch(IncrementalQBF session) {
+		this.session = session;
+		this.index = session.enableFlipIndex();
+		this.insWalk = index.walk();
+		this.outsWalk = index.walk();
+		this.ins = new int[16];
+		this.outs = new int[16];
+		this.cellIn = new int[16];
+		this.cellOut = new int[16];
+		this.cellKey = new double[16];
+		this.neighbors = new int[session.getDomainSize()];
+	}
+
+	/**
+	 * Finds the best exchange accepted by a filter, i.e., the one with the
+	 * smallest variation, ties broken by the orders of the variables in the
+	 * flip index.
+	 *
+	 * @param filter
+	 *            the filter of the admissible moves.
+	 * @return true if some exchange was accepted, in which case it is given by
+	 *         {@link #getIn()}, {@link #getOut()} and {@link #getValue()}.
+	 */
+	public boolean find(Filter filter) {
+
+		final QBFMatrix matrix = session.matrix;
+		final int n = session.size;
+		bestIn = -1;
+		bestOut = -1;
+		bestValue = Double.POSITIVE_INFINITY;
+		evaluations = 0;
+
+		/* Interacting pairs */
+		for (int out = 0; out < n; out++) {
+			if (!session.contains(out))
+				continue;
+			for (int k = 0, m = matrix.getNeighbors(out, neighbors); k < m; k++) {
+				int in = neighbors[k];
+				if (!session.contains(in))
+					offer(filter, in, out);
+			}
+		}
+
+		/*
+		 * Other pairs, from the corner of the grid. Cell (a, b) is reached
+		 * from (a, b-1), or from (a-1, 0) if b = 0, and its sum is no smaller
+		 * than theirs.
+		 */
+		insWalk.restart();
+		outsWalk.restart();
+		numIns = 0;
+		numOuts = 0;
+		insDone = false;
+		outsDone = false;
+		numCells = 0;
+		if (in(0) >= 0 && out(0) >= 0)
+			push(0, 0);
+		while (numCells > 0 && !(cellKey[0] > bestValue)) {
+			int a = cellIn[0], b = cellOut[0];
+			pop();
+			int in = ins[a], out = outs[b];
+			if (matrix.getInteraction(in, out) == 0.0)
+				offer(filter, in, out);
+			if (out(b + 1) >= 0)
+				push(a, b + 1);
+			if (b == 0 && in(a + 1) >= 0)
+				push(a + 1, 0);
+		}
+
+		return bestIn >= 0;
+
+	}
+
+	/**
+	 * @return the variable entering the solution in the best exchange.
+	 */
+	public int getIn() {
+		return bestIn;
+	}
+
+	/**
+	 * @return the variable leaving the solution in the best exchange.
+	 */
+	public int getOut() {
+		return bestOut;
+	}
+
+	/**
+	 * @return the variation of the best exchange.
+	 */
+	public double getValue() {
+		return bestValue;
+	}
+
+	/**
+	 * @return the number of exchanges evaluated by the last search.
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Evaluates an exchange, keeping it if it is admissible and better than
+	 * the best one found.
+	 */
+	private void offer(Filter filter, int in, int out) {
+		double value = session.evaluateExchangeQBF(in, out);
+		evaluations++;
+		if (bestIn >= 0 && !(value < bestValue)) {
+			if (value != bestValue)
+				return;
+			long inOrder = index.getOrder(in), bestInOrder = index.getOrder(bestIn);
+			if (inOrder > bestInOrder || (inOrder == bestInOrder && index.getOrder(out) >= index.getOrder(bestOut)))
+				return;
+		}
+		if (filter.accept(in, out, value)) {
+			bestIn = in;
+			bestOut = out;
+			bestValue = value;
+		}
+	}
+
+	/**
+	 * Gives the a-th variable out of the solution in increasing order of
+	 * delta, advancing the walk if needed.
+	 */
+	private int in(int a) {
+		while (a >= numIns && !insDone) {
+			int i = insWalk.next();
+			if (i < 0) {
+				insDone = true;
+			} else if (!session.contains(i)) {
+				if (numIns == ins.length)
+					ins = Arrays.copyOf(ins, 2 * numIns);
+				ins[numIns++] = i;
+			}
+		}
+		return a < numIns ? ins[a] : -1;
+	}
+
+	/**
+	 * Gives the b-th variable in the solution in increasing order of delta,
+	 * advancing the walk if needed.
+	 */
+	private int out(int b) {
+		while (b >= numOuts && !outsDone) {
+			int i = outsWalk.next();
+			if (i < 0) {
+				outsDone = true;
+			} else if (session.contains(i)) {
+				if (numOuts == outs.length)
+					outs = Arrays.copyOf(outs, 2 * numOuts);
+				outs[numOuts++] = i;
+			}
+		}
+		return b < numOuts ? outs[b] : -1;
+	}
+
+	/**
+	 * Adds a cell of the grid to the heap.
+	 */
+	private void push(int a, int b) {
+		if (numCells == cellKey.length) {
+			cellIn = Arrays.copyOf(cellIn, 2 * numCells);
+			cellOut = Arrays.copyOf(cellOut, 2 * numCells);
+			cellKey = Arrays.copyOf(cellKey, 2 * numCells);
+		}
+		double key = index.getDelta(ins[a]) + index.getDelta(outs[b]);
+		int k = numCells++;
+		while (k > 0 && key < cellKey[(k - 1) >>> 1]) {
+			int parent = (k - 1) >>> 1;
+			cellIn[k] = cellIn[parent];
+			cellOut[k] = cellOut[parent];
+			cellKey[k] = cellKey[parent];
+			k = parent;
+		}
+		cellIn[k] = a;
+		cellOut[k] = b;
+		cellKey[k] = key;
+	}
+
+	/**
+	 * Removes the cell with the smallest sum from the heap.
+	 */
+	private void pop() {
+		int last = --numCells;
+		int a = cellIn[last], b = cellOut[last];
+		double key = cellKey[last];
+		int k = 0;
+		while (2 * k + 1 < numCells) {
+			int c = 2 * k + 1;
+			if (c + 1 < numCells && cellKey[c + 1] < cellKey[c])
+				c++;
+			if (!(cellKey[c] < key))
+				break;
+			cellIn[k] = cellIn[c];
+			cellOut[k] = cellOut[c];
+			cellKey[k] = cellKey[c];
+			k = c;
+		}
+		cellIn[k] = a;
+		cellOut[k] = b;
+		cellKey[k] = key;
+	}
+
+}
@@ -1,13 +1,21 @@
 package problems.qbf.solvers;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
 import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.ParallelNeighborhood;
+import metaheuristics.tabusearch.SearchMetrics;
+import metaheuristics.tabusearch.TabuMemory;
+import problems.EvaluationSession;
+import problems.qbf.FlipIndex;
+import problems.qbf.IncrementalQBF;
 import problems.qbf.QBF;
 import problems.qbf.QBF_Inverse;
+import problems.qbf.SparseQBFMatrix;
+import problems.qbf.SwapSearch;
+import solutions.BitSetSolution;
 import solutions.Solution;
 
 /**
@@ -19,14 +27,25 @@ import solutions.Solution;
  */
 public class TS_QBF extends AbstractTS<Integer> {
 
-    private final Integer fake = new Integer(-1);
-
     private boolean bestImproving; // true = best improving, false = first improving
     private String tabuStrategy; // "default", "intensificationRestart", "diversificationRestart", "strategicOscillation"
     private int[] usageCount;
     private double diversificationFixationRate = 0.2;
     private double diversificationSelectionProbability = 0.5;
 
+    /**
+     * Ordem dos elementos da solução no índice de flips: depois de todos os
+     * elementos da CL, na ordem da solução.
+     */
+    private static final long SOL_ORDER = 1L << 62;
+
+    private FlipIndex flipIndex; // índice dos deltas de flip da sessão (best improving), ou null
+    private boolean flipOrderStale; // a ordem do índice precisa ser refeita a partir da CL e da solução
+    private long nextCLOrder; // ordem do próximo elemento adicionado ao fim da CL
+    private long nextSolOrder; // ordem do próximo elemento adicionado ao fim da solução
+    private SwapSearch swapSearch; // busca exata da melhor troca sobre o índice, ou null
+    private final ParallelNeighborhood.BestMove indexedBest = new ParallelNeighborhood.BestMove();
+
     /**
      * Constructor
      * @param tenure tabu tenure
@@ -78,12 +97,26 @@ public class TS_QBF extends AbstractTS<Integer> {
     }
 
     @Override
-    public ArrayDeque<Integer> makeTL() {
-        ArrayDeque<Integer> _TS = new ArrayDeque<Integer>(2 * tenure);
-        for (int i = 0; i < 2 * tenure; i++) {
-            _TS.add(fake);
-        }
-        return _TS;
+    public TabuMemory makeTL() {
+        return new TabuMemory(ObjFunction.getDomainSize(), tenure);
+    }
+
+    /**
+     * Em best improving com matriz esparsa, a sessão mantém o índice de
+     * flips, do qual vem a melhor inserção ou remoção a cada iteração: cada
+     * flip atualiza só os vizinhos da variável. A melhor troca vem da busca
+     * sobre o mesmo índice (ver {@link SwapSearch}), que só enumera os pares
+     * que interagem. Com matriz densa todos os deltas mudam a cada flip, e
+     * percorrer a CL e a solução sai mais barato.
+     */
+    @Override
+    public EvaluationSession<Integer> makeSession() {
+        IncrementalQBF session = ((QBF) ObjFunction).newSession();
+        boolean sparse = ((QBF) ObjFunction).getMatrix() instanceof SparseQBFMatrix;
+        flipIndex = bestImproving && sparse ? session.enableFlipIndex() : null;
+        swapSearch = flipIndex != null ? new SwapSearch(session) : null;
+        flipOrderStale = true;
+        return session;
     }
 
     @Override
@@ -93,101 +126,50 @@ public class TS_QBF extends AbstractTS<Integer> {
 
     @Override
     public Solution<Integer> createEmptySol() {
-        Solution<Integer> sol = new Solution<Integer>();
+        Solution<Integer> sol = new BitSetSolution(ObjFunction.getDomainSize());
         sol.cost = 0.0;
         return sol;
     }
 
     /**
      * Neighborhood move adapted to support first-improving and best-improving.
+     * Moves are evaluated through the session bound to the incumbent solution.
+     * The neighborhood is split into tasks (see {@link #scanMoves}) scanned by
+     * the neighborhood engine, in parallel for best-improving searches, in
+     * which case every move comes from the flip index instead when the
+     * matrix is sparse (see {@link #offerBestFlip} and {@link #offerBestSwap}).
      */
     @Override
     public Solution<Integer> neighborhoodMove() {
 
-        Double bestDeltaCost = null;
-        Integer bestCandIn = null, bestCandOut = null;
-
         updateCL();
 
-        // Avaliar inserções
-        for (Integer candIn : CL) {
-            Double deltaCost = ObjFunction.evaluateInsertionCost(candIn, sol);
-            boolean isTabu = TL.contains(candIn);
-            boolean aspira = sol.cost + deltaCost < bestSol.cost;
-            boolean moveAllowed = !isTabu || aspira;
-
-            if (moveAllowed) {
-                if (bestImproving) {
-                    if (bestDeltaCost == null || deltaCost < bestDeltaCost) {
-                        bestDeltaCost = deltaCost;
-                        bestCandIn = candIn;
-                        bestCandOut = null;
-                    }
-                } else { // first improving
-                    if (deltaCost < 0) {
-                        bestDeltaCost = deltaCost;
-                        bestCandIn = candIn;
-                        bestCandOut = null;
-                        break; // para no primeiro movimento que melhora
-                    }
-                }
-            }
-        }
-
-        if (bestImproving || bestCandIn == null) {
-            // Avaliar remoções (somente se bestImproving ou ainda não achou movimento)
-            for (Integer candOut : sol) {
-                Double deltaCost = ObjFunction.evaluateRemovalCost(candOut, sol);
-                boolean isTabu = TL.contains(candOut);
-                boolean aspira = sol.cost + deltaCost < bestSol.cost;
-                boolean moveAllowed = !isTabu || aspira;
-
-                if (moveAllowed) {
-                    if (bestImproving) {
-                        if (bestDeltaCost == null || deltaCost < bestDeltaCost) {
-                            bestDeltaCost = deltaCost;
-                            bestCandIn = null;
-                            bestCandOut = candOut;
-                        }
-                    } else {
-                        if (deltaCost < 0) {
-                            bestDeltaCost = deltaCost;
-                            bestCandIn = null;
-                            bestCandOut = candOut;
-                            break;
-                        }
-                    }
-                }
-            }
+        final int nIn = CL.size(), nOut = sol.size();
+        ParallelNeighborhood.BestMove best;
+        if (bestImproving && flipIndex != null) {
+            best = indexedBest;
+            best.reset();
+            offerBestFlip(best);
+            offerBestSwap(best);
+        } else if (bestImproving) {
+            best = getNeighborhood().findBest(nIn + nOut + nIn, (t, acc) -> scanMoves(t, acc, nIn, nOut));
+        } else {
+            best = getNeighborhood().findFirst(nIn + nOut + nIn, (t, acc) -> scanMoves(t, acc, nIn, nOut));
         }
 
-        if (bestImproving || bestCandIn == null && bestCandOut == null) {
-            // Avaliar trocas (somente se bestImproving ou ainda não achou movimento)
-            outerLoop:
-            for (Integer candIn : CL) {
-                for (Integer candOut : sol) {
-                    Double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, sol);
-                    boolean isTabu = TL.contains(candIn) || TL.contains(candOut);
-                    boolean aspira = sol.cost + deltaCost < bestSol.cost;
-                    boolean moveAllowed = !isTabu || aspira;
-
-                    if (moveAllowed) {
-                        if (bestImproving) {
-                            if (bestDeltaCost == null || deltaCost < bestDeltaCost) {
-                                bestDeltaCost = deltaCost;
-                                bestCandIn = candIn;
-                                bestCandOut = candOut;
-                            }
-                        } else {
-                            if (deltaCost < 0) {
-                                bestDeltaCost = deltaCost;
-                                bestCandIn = candIn;
-                                bestCandOut = candOut;
-                                break outerLoop;
-                            }
-                        }
-                    }
-                }
+        Double bestDeltaCost = best.isFound() ? best.getValue() : null;
+        Integer bestCandIn = best.getIn() >= 0 ? Integer.valueOf(best.getIn()) : null;
+        Integer bestCandOut = best.getOut() >= 0 ? Integer.valueOf(best.getOut()) : null;
+
+        if (metrics != null) {
+            // Contagens da varredura e tipo do movimento aplicado
+            metrics.add(best);
+            if (bestCandIn != null && bestCandOut != null) {
+                metrics.increment(SearchMetrics.Counter.EXCHANGES);
+            } else if (bestCandIn != null) {
+                metrics.increment(SearchMetrics.Counter.INSERTIONS);
+            } else if (bestCandOut != null) {
+                metrics.increment(SearchMetrics.Counter.REMOVALS);
             }
         }
 
@@ -198,36 +180,161 @@ public class TS_QBF extends AbstractTS<Integer> {
         }
 
         // Atualizar lista tabu
-        TL.poll();
         if (bestCandOut != null) {
             sol.remove(bestCandOut);
             CL.add(bestCandOut);
-            TL.add(bestCandOut);
-        } else {
-            TL.add(fake);
+            TL.markRemoved(bestCandOut);
+            if (flipIndex != null) {
+                // A remoção preserva a ordem relativa dos demais elementos
+                flipIndex.setOrder(bestCandOut, nextCLOrder++);
+            }
         }
-        TL.poll();
         if (bestCandIn != null) {
             usageCount[bestCandIn]++;
             sol.add(bestCandIn);
             CL.remove(bestCandIn);
-            TL.add(bestCandIn);
-        } else {
-            TL.add(fake);
+            TL.markInserted(bestCandIn);
+            if (flipIndex != null) {
+                flipIndex.setOrder(bestCandIn, SOL_ORDER + nextSolOrder++);
+            }
         }
+        TL.advance();
 
-        ObjFunction.evaluate(sol);
+        if (bestCandIn != null && bestCandOut != null) {
+            session.applyExchange(bestCandIn, bestCandOut);
+        } else if (bestCandIn != null) {
+            session.applyInsertion(bestCandIn);
+        } else {
+            session.applyRemoval(bestCandOut);
+        }
+        sol.cost += bestDeltaCost;
 
         return null;
     }
 
+    /**
+     * Avalia os movimentos de uma tarefa da vizinhança, na ordem sequencial:
+     * as tarefas [0, nIn) são inserções dos elementos da CL, [nIn, nIn + nOut)
+     * são remoções dos elementos da solução e [nIn + nOut, 2 nIn + nOut) são
+     * as trocas de um elemento da CL com cada elemento da solução. O rank de
+     * cada movimento é a sua posição nessa ordem. Em first improving apenas
+     * movimentos que melhoram são oferecidos, e a tarefa termina no primeiro.
+     * Só lê o estado da busca, podendo rodar em paralelo.
+     */
+    private void scanMoves(int task, ParallelNeighborhood.BestMove acc, int nIn, int nOut) {
+        if (task < nIn) {
+            // Avaliar inserção
+            Integer candIn = CL.get(task);
+            double deltaCost = session.evaluateInsertion(candIn);
+            if (metrics != null) {
+                acc.count(SearchMetrics.Counter.INSERTION_EVALUATIONS);
+            }
+            if (isAllowed(deltaCost, TL.isInsertionTabu(candIn), acc)) {
+                acc.offer(deltaCost, task, candIn, -1);
+            }
+        } else if (task < nIn + nOut) {
+            // Avaliar remoção
+            Integer candOut = sol.get(task - nIn);
+            double deltaCost = session.evaluateRemoval(candOut);
+            if (metrics != null) {
+                acc.count(SearchMetrics.Counter.REMOVAL_EVALUATIONS);
+            }
+            if (isAllowed(deltaCost, TL.isRemovalTabu(candOut), acc)) {
+                acc.offer(deltaCost, task, -1, candOut);
+            }
+        } else {
+            // Avaliar trocas
+            int row = task - nIn - nOut;
+            Integer candIn = CL.get(row);
+            boolean inTabu = TL.isInsertionTabu(candIn);
+            long rank = nIn + nOut + (long) row * nOut;
+            for (int j = 0; j < nOut; j++) {
+                Integer candOut = sol.get(j);
+                double deltaCost = session.evaluateExchange(candIn, candOut);
+                if (isAllowed(deltaCost, inTabu || TL.isRemovalTabu(candOut), acc)
+                        && acc.offer(deltaCost, rank + j, candIn, candOut) && !bestImproving) {
+                    if (metrics != null) {
+                        acc.count(SearchMetrics.Counter.EXCHANGE_EVALUATIONS, j + 1);
+                    }
+                    return; // para no primeiro movimento que melhora
+                }
+            }
+            if (metrics != null) {
+                acc.count(SearchMetrics.Counter.EXCHANGE_EVALUATIONS, nOut);
+            }
+        }
+    }
+
+    /**
+     * Oferece a melhor inserção ou remoção permitida, tirada do índice de
+     * flips em vez de percorrer a CL e a solução. A ordem do índice reproduz
+     * o rank da enumeração sequencial (elementos da CL na ordem da lista,
+     * seguidos dos elementos da solução na ordem da solução), e como todos os
+     * flips vêm antes das trocas o movimento é oferecido com rank -1. Assim o
+     * movimento escolhido é o mesmo da varredura completa.
+     */
+    private void offerBestFlip(ParallelNeighborhood.BestMove best) {
+        if (flipOrderStale) {
+            for (int k = 0; k < CL.size(); k++) {
+                flipIndex.setOrder(CL.get(k), k);
+            }
+            for (int k = 0; k < sol.size(); k++) {
+                flipIndex.setOrder(sol.get(k), SOL_ORDER + k);
+            }
+            nextCLOrder = CL.size();
+            nextSolOrder = sol.size();
+            flipOrderStale = false;
+        }
+        int elem = flipIndex.findBest((e, deltaCost) -> {
+            boolean removal = flipIndex.getOrder(e) >= SOL_ORDER;
+            if (metrics != null) {
+                best.count(removal ? SearchMetrics.Counter.REMOVAL_EVALUATIONS
+                        : SearchMetrics.Counter.INSERTION_EVALUATIONS);
+            }
+            return isAllowed(deltaCost, removal ? TL.isRemovalTabu(e) : TL.isInsertionTabu(e), best);
+        });
+        if (elem >= 0) {
+            boolean removal = flipIndex.getOrder(elem) >= SOL_ORDER;
+            best.offer(flipIndex.getDelta(elem), -1, removal ? -1 : elem, removal ? elem : -1);
+        }
+    }
+
+    /**
+     * Oferece a melhor troca permitida, encontrada pela busca exata sobre o
+     * índice de flips. A ordem do índice desempata as trocas como o rank da
+     * enumeração sequencial (linha da CL, depois posição na solução), e como
+     * todas as trocas vêm depois dos flips o movimento é oferecido com rank 0,
+     * após {@link #offerBestFlip}, que também atualiza a ordem do índice.
+     */
+    private void offerBestSwap(ParallelNeighborhood.BestMove best) {
+        if (swapSearch.find((in, out, deltaCost) -> isAllowed(deltaCost,
+                TL.isInsertionTabu(in) || TL.isRemovalTabu(out), best))) {
+            best.offer(swapSearch.getValue(), 0, swapSearch.getIn(), swapSearch.getOut());
+        }
+        if (metrics != null) {
+            best.count(SearchMetrics.Counter.EXCHANGE_EVALUATIONS, swapSearch.getEvaluations());
+        }
+    }
+
+    /**
+     * Um movimento é permitido se não for tabu ou se atender ao critério de
+     * aspiração. Em first improving, apenas movimentos que melhoram. Com
+     * métricas, conta no acumulador as rejeições tabu e as aspirações.
+     */
+    private boolean isAllowed(double deltaCost, boolean isTabu, ParallelNeighborhood.BestMove acc) {
+        boolean aspira = sol.cost + deltaCost < bestSol.cost;
+        boolean moveAllowed = !isTabu || aspira;
+        if (isTabu && metrics != null) {
+            acc.count(aspira ? SearchMetrics.Counter.ASPIRATIONS : SearchMetrics.Counter.TABU_REJECTIONS);
+        }
+        return moveAllowed && (bestImproving || deltaCost < 0);
+    }
+
     private void applyTabuStrategy() {
         switch (tabuStrategy) {
             case "intensificationRestart":
                 // Reiniciar a busca com a melhor solução até agora
-                sol.clear();
-                sol.addAll(bestSol);
-                sol.cost = bestSol.cost;
+                sol.copyFrom(bestSol);
                 break;
             case "diversificationRestart":
                 // 1. Identificar variáveis raramente usadas
@@ -252,7 +359,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
                 // 3. Completar a solução com um método aleatório
                 for (int i = 0; i < domainSize; i++) {
-                    if (!sol.contains(i) && Math.random() < diversificationSelectionProbability) {
+                    if (!sol.contains(i) && rng.nextDouble() < diversificationSelectionProbability) {
                         sol.add(i);
                     }
                 }
@@ -264,7 +371,7 @@ public class TS_QBF extends AbstractTS<Integer> {
                 if (!sol.isEmpty()) {
                     sol.remove(sol.iterator().next());
                 }
-                int randAdd = (int) (Math.random() * ObjFunction.getDomainSize());
+                int randAdd = rng.nextInt(ObjFunction.getDomainSize());
                 if (!sol.contains(randAdd)) {
                     sol.add(randAdd);
                 }
@@ -272,8 +379,22 @@ public class TS_QBF extends AbstractTS<Integer> {
                 break;
             default:
                 // Estratégia padrão - não faz nada
-                break;
+                return;
+        }
+
+        if (metrics != null) {
+            metrics.increment(SearchMetrics.Counter.RESTARTS);
+        }
+
+        // A solução foi reconstruída: ressincronizar a CL e a sessão
+        CL.clear();
+        for (int i = 0; i < ObjFunction.getDomainSize(); i++) {
+            if (!sol.contains(i)) {
+                CL.add(i);
+            }
         }
+        session.bind(sol);
+        flipOrderStale = true;
     }
 
     /**
@@ -288,6 +409,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
         // Configuração 1 - padrão: first improving, tenure T1, estratégia default
         TS_QBF ts1 = new TS_QBF(tenure1, maxIter, instance, false, "default");
+        ts1.verbose = true;
         long start1 = System.currentTimeMillis();
         Solution<Integer> best1 = ts1.solve();
         long end1 = System.currentTimeMillis();
@@ -295,6 +417,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
         // Configuração 2 - best improving, tenure T1, estratégia default
         TS_QBF ts2 = new TS_QBF(tenure1, maxIter, instance, true, "default");
+        ts2.verbose = true;
         long start2 = System.currentTimeMillis();
         Solution<Integer> best2 = ts2.solve();
         long end2 = System.currentTimeMillis();
@@ -302,6 +425,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
         // Configuração 3 - first improving, tenure T2, estratégia default
         TS_QBF ts3 = new TS_QBF(tenure2, maxIter, instance, false, "default");
+        ts3.verbose = true;
         long start3 = System.currentTimeMillis();
         Solution<Integer> best3 = ts3.solve();
         long end3 = System.currentTimeMillis();
@@ -309,6 +433,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
         // Configuração 4 - first improving, tenure T1, estratégia diversificationRestart
         TS_QBF ts4 = new TS_QBF(tenure1, maxIter, instance, false, "diversificationRestart", 0.2, 0.5);
+        ts4.verbose = true;
         long start4 = System.currentTimeMillis();
         Solution<Integer> best4 = ts4.solve();
         long end4 = System.currentTimeMillis();
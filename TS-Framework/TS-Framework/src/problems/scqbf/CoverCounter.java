@@ -0,0 +1,232 @@
+package problems.scqbf;
+
+import java.util.Arrays;
+
+/**
+ * Incremental bookkeeping of the set cover constraints of a SC-QBF. For each
+ * element of the universe {1, ..., n} it keeps how many selected subsets
+ * cover it, along with the number of elements left uncovered. Selecting or
+ * deselecting a subset, as well as checking whether a move keeps every
+ * element covered, costs O(|subset|) and allocates no memory.
+ *
+ * Elements covered by exactly one selected subset are critical: that subset
+ * cannot leave the solution unless the entering subset also covers them. The
+ * sole coverer of each element is recovered from the XOR of the indices of
+ * the subsets covering it, and each selected subset keeps how many elements
+ * it covers alone, so that a removal is checked in O(1).
+ */
+public class CoverCounter {
+
+    /**
+     * The subsets of the instance
+     */
+    private final SubsetMatrix subsets;
+
+    /**
+     * CSR lists of the elements of the subsets, see {@link SubsetMatrix}
+     */
+    private final int[] offsets;
+    private final int[] elements;
+
+    /**
+     * Number of elements of the universe
+     */
+    private final int numElements;
+
+    /**
+     * Number of selected subsets covering each element (index 0 is unused)
+     */
+    private final int[] coverCount;
+
+    /**
+     * XOR of the indices of the selected subsets covering each element, which
+     * is the sole coverer of the elements covered once
+     */
+    private final int[] coverXor;
+
+    /**
+     * Number of elements covered only by each subset (zero for subsets not
+     * selected)
+     */
+    private final int[] uniqueCount;
+
+    /**
+     * Number of elements covered by no selected subset
+     */
+    private int uncovered;
+
+    /**
+     * Constructor for CoverCounter class. No subset starts selected.
+     * @param subsets The subsets of the instance
+     */
+    public CoverCounter(SubsetMatrix subsets) {
+        this.subsets = subsets;
+        this.offsets = subsets.getOffsets();
+        this.elements = subsets.getElements();
+        this.numElements = subsets.getNumElements();
+        this.coverCount = new int[numElements + 1];
+        this.coverXor = new int[numElements + 1];
+        this.uniqueCount = new int[subsets.getNumSubsets()];
+        clear();
+    }
+
+    /**
+     * Deselects every subset
+     */
+    public void clear() {
+        Arrays.fill(coverCount, 0);
+        Arrays.fill(coverXor, 0);
+        Arrays.fill(uniqueCount, 0);
+        uncovered = numElements;
+    }
+
+    /**
+     * Recomputes the counters for a collection of selected subsets
+     * @param selected The selected subsets
+     */
+    public void reset(Iterable<Integer> selected) {
+        clear();
+        for (Integer subset : selected) {
+            add(subset);
+        }
+    }
+
+    /**
+     * Selects a subset
+     * @param subset Index of the subset
+     */
+    public void add(int subset) {
+        for (int k = offsets[subset]; k < offsets[subset + 1]; k++) {
+            int e = elements[k];
+            int count = ++coverCount[e];
+            if (count == 1) {
+                uncovered--;
+                uniqueCount[subset]++;
+            } else if (count == 2) {
+                uniqueCount[coverXor[e]]--;
+            }
+            coverXor[e] ^= subset;
+        }
+    }
+
+    /**
+     * Deselects a subset
+     * @param subset Index of the subset
+     */
+    public void remove(int subset) {
+        for (int k = offsets[subset]; k < offsets[subset + 1]; k++) {
+            int e = elements[k];
+            int count = --coverCount[e];
+            coverXor[e] ^= subset;
+            if (count == 0) {
+                uncovered++;
+                uniqueCount[subset]--;
+            } else if (count == 1) {
+                uniqueCount[coverXor[e]]++;
+            }
+        }
+    }
+
+    /**
+     * @return true if every element is covered by the selected subsets
+     */
+    public boolean isCovered() {
+        return uncovered == 0;
+    }
+
+    /**
+     * @return the number of elements covered by no selected subset
+     */
+    public int getUncovered() {
+        return uncovered;
+    }
+
+    /**
+     * @param element An element of the universe
+     * @return the number of selected subsets covering the element
+     */
+    public int getCoverCount(int element) {
+        return coverCount[element];
+    }
+
+    /**
+     * @param element An element of the universe
+     * @return the only selected subset covering the element, or -1 if the
+     * element is not covered exactly once
+     */
+    public int getSoleCoverer(int element) {
+        return coverCount[element] == 1 ? coverXor[element] : -1;
+    }
+
+    /**
+     * @param subset Index of a selected subset
+     * @return the number of elements covered by no other selected subset
+     */
+    public int getUniqueCount(int subset) {
+        return uniqueCount[subset];
+    }
+
+    /**
+     * Finds an element covered only by a given subset. Every subset entering
+     * the solution in exchange for this one must cover it, so the subsets
+     * covering it (see {@link SubsetMatrix#getCoverers(int)}) are the only
+     * feasible swap candidates.
+     * @param subset Index of a selected subset
+     * @return the smallest element covered only by the subset, or 0 if none
+     */
+    public int getUniqueElement(int subset) {
+        if (uniqueCount[subset] == 0) {
+            return 0;
+        }
+        for (int k = offsets[subset]; k < offsets[subset + 1]; k++) {
+            if (coverCount[elements[k]] == 1) {
+                return elements[k];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether every element remains covered after deselecting a
+     * selected subset, in O(1)
+     * @param subset Index of a selected subset
+     * @return true if the removal keeps the cover valid
+     */
+    public boolean canRemove(int subset) {
+        return uncovered == 0 && uniqueCount[subset] == 0;
+    }
+
+    /**
+     * Checks whether every element is covered after a move. The counters are
+     * not modified, so concurrent checks are safe as long as no move is
+     * being applied.
+     * @param in Index of a subset being selected, or -1 if none
+     * @param out Index of a selected subset being deselected, or -1 if none
+     * @return true if the move leaves every element covered
+     */
+    public boolean isCoveredAfter(int in, int out) {
+        if (out >= 0 && uniqueCount[out] > 0) {
+            if (in < 0 || uniqueCount[out] > subsets.size(in)) {
+                return false;
+            }
+            for (int k = offsets[out]; k < offsets[out + 1]; k++) {
+                int e = elements[k];
+                if (coverCount[e] == 1 && !subsets.contains(in, e)) {
+                    return false;
+                }
+            }
+        }
+        if (uncovered == 0) {
+            return true;
+        }
+        int newlyCovered = 0;
+        if (in >= 0) {
+            for (int k = offsets[in]; k < offsets[in + 1]; k++) {
+                if (coverCount[elements[k]] == 0) {
+                    newlyCovered++;
+                }
+            }
+        }
+        return uncovered == newlyCovered;
+    }
+}
@@ -0,0 +1,119 @@
+package problems.scqbf;
+
+import problems.qbf.IncrementalQBF;
+import solutions.Solution;
+
+/**
+ * Evaluation session for the SC-QBF. Moves are evaluated through the gain
+ * vector of {@link IncrementalQBF}, and moves that break the set cover
+ * constraints are reported with the same penalties used by {@link SC_QBF}.
+ * Feasibility is answered by a {@link CoverCounter} kept in sync with the
+ * bound solution, in O(|subset|) per query and without modifying any state.
+ */
+public class IncrementalSC_QBF extends IncrementalQBF {
+
+    /**
+     * Cover counters of the bound solution
+     */
+    private final CoverCounter cover;
+
+    /**
+     * Constructor for IncrementalSC_QBF class
+     * @param scqbf The SC-QBF being evaluated
+     * @param inverse Whether variations are reported for the inverse SC-QBF
+     */
+    public IncrementalSC_QBF(SC_QBF scqbf, boolean inverse) {
+        super(scqbf, inverse);
+        this.cover = new CoverCounter(scqbf.getSubsets());
+    }
+
+    /**
+     * Binds the session to a solution, recounting the coverage of each element
+     */
+    @Override
+    public void bind(Solution<Integer> sol) {
+        super.bind(sol);
+        if (sol != null) {
+            cover.reset(sol);
+        } else {
+            cover.clear();
+        }
+    }
+
+    /**
+     * Evaluates insertion considering set cover constraints
+     */
+    @Override
+    public double evaluateInsertion(Integer elem) {
+        if (!isCoveredAfter(elem, -1)) {
+            return -1000000.0;
+        }
+        return evaluateInsertionQBF(elem);
+    }
+
+    /**
+     * Evaluates removal considering set cover constraints
+     */
+    @Override
+    public double evaluateRemoval(Integer elem) {
+        if (!isCoveredAfter(-1, elem)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return evaluateRemovalQBF(elem);
+    }
+
+    /**
+     * Evaluates exchange considering set cover constraints
+     */
+    @Override
+    public double evaluateExchange(Integer elemIn, Integer elemOut) {
+        if (!isCoveredAfter(elemIn, elemOut)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return evaluateExchangeQBF(elemIn, elemOut);
+    }
+
+    @Override
+    public void applyInsertion(Integer elem) {
+        if (!contains(elem)) {
+            cover.add(elem);
+        }
+        super.applyInsertion(elem);
+    }
+
+    @Override
+    public void applyRemoval(Integer elem) {
+        if (contains(elem)) {
+            cover.remove(elem);
+        }
+        super.applyRemoval(elem);
+    }
+
+    /**
+     * Gets the cover counters of the bound solution
+     * @return the cover counters, which must not be modified
+     */
+    public CoverCounter getCover() {
+        return cover;
+    }
+
+    /**
+     * Checks whether the bound solution covers every element after a move,
+     * ignoring the parts of the move that do not change the solution
+     * @param in Subset entering the solution, or -1 if none
+     * @param out Subset leaving the solution, or -1 if none
+     * @return true if the move keeps the cover valid
+     */
+    private boolean isCoveredAfter(int in, int out) {
+        if (out >= 0 && !contains(out)) {
+            out = -1;
+        }
+        if (in >= 0 && contains(in) && in != out) {
+            in = -1;
+        }
+        if (in == out) {
+            return cover.isCovered();
+        }
+        return cover.isCoveredAfter(in, out);
+    }
+}
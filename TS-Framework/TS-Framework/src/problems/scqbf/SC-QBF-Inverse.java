@@ -17,6 +17,14 @@ public class SC_QBF_Inverse extends SC_QBF {
         super(filename);
     }
     
+    /**
+     * Opens an evaluation session for the inverse SC-QBF
+     */
+    @Override
+    public IncrementalSC_QBF newSession() {
+        return new IncrementalSC_QBF(this, true);
+    }
+    
     /**
      * Evaluates the inverse of SC-QBF (for maximization)
      */
@@ -34,10 +42,7 @@ public class SC_QBF_Inverse extends SC_QBF {
      */
     @Override
     public Double evaluateInsertionCost(Integer elem, Solution<Integer> sol) {
-        Solution<Integer> tempSol = new Solution<>(sol);
-        tempSol.add(elem);
-        
-        if (!isCoverValid(tempSol)) {
+        if (!isCoverValid(sol, elem, null)) {
             return -1000000.0;
         }
         
@@ -50,10 +55,7 @@ public class SC_QBF_Inverse extends SC_QBF {
      */
     @Override
     public Double evaluateRemovalCost(Integer elem, Solution<Integer> sol) {
-        Solution<Integer> tempSol = new Solution<>(sol);
-        tempSol.remove(elem);
-        
-        if (!isCoverValid(tempSol)) {
+        if (!isCoverValid(sol, null, elem)) {
             return Double.POSITIVE_INFINITY;
         }
         
@@ -66,11 +68,7 @@ public class SC_QBF_Inverse extends SC_QBF {
      */
     @Override
     public Double evaluateExchangeCost(Integer elemIn, Integer elemOut, Solution<Integer> sol) {
-        Solution<Integer> tempSol = new Solution<>(sol);
-        tempSol.remove(elemOut);
-        tempSol.add(elemIn);
-        
-        if (!isCoverValid(tempSol)) {
+        if (!isCoverValid(sol, elemIn, elemOut)) {
             return Double.POSITIVE_INFINITY;
         }
         
@@ -1,15 +1,10 @@
 package problems.scqbf;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
-
+import problems.InstanceCache;
+import problems.InstanceParser;
 import problems.qbf.QBF;
+import problems.qbf.QBFMatrix;
 import solutions.Solution;
 
 /**
@@ -19,15 +14,20 @@ import solutions.Solution;
 public class SC_QBF extends QBF {
     
     /**
-     * Collection of subsets, where each subset contains indices of elements it covers
+     * Subsets as bit rows and element lists, see {@link SubsetMatrix}
      */
-    private ArrayList<Set<Integer>> subsets;
+    private SubsetMatrix subsets;
     
     /**
      * Number of subsets (same as number of variables)
      */
     private Integer numSubsets;
     
+    /**
+     * Covered elements, reused by {@link #isCoverValid(Solution, Integer, Integer)}
+     */
+    private long[] coveredScratch;
+    
     /**
      * Constructor for SC_QBF class
      * @param filename Name of the file containing the SC-QBF instance
@@ -43,23 +43,43 @@ public class SC_QBF extends QBF {
      * @return true if all elements are covered, false otherwise
      */
     public boolean isCoverValid(Solution<Integer> sol) {
-        Set<Integer> covered = new HashSet<>();
+        return isCoverValid(sol, null, null);
+    }
+    
+    /**
+     * Checks if a solution modified by a move covers all elements from 1 to n,
+     * without building the modified solution
+     * @param sol The solution to which the move is applied
+     * @param elemIn Subset entering the solution, or null if none
+     * @param elemOut Subset leaving the solution, or null if none
+     * @return true if all elements are covered after the move, false otherwise
+     */
+    public boolean isCoverValid(Solution<Integer> sol, Integer elemIn, Integer elemOut) {
+        long[] covered = coveredScratch;
+        subsets.clear(covered);
         
-        // Add all elements covered by selected subsets
+        // Union of the bit rows of selected subsets
         for (Integer subsetIdx : sol) {
-            if (subsetIdx >= 0 && subsetIdx < numSubsets) {
-                covered.addAll(subsets.get(subsetIdx));
+            if (subsetIdx >= 0 && subsetIdx < numSubsets && !subsetIdx.equals(elemOut)) {
+                subsets.or(covered, subsetIdx);
             }
         }
-        
-        // Check if all elements from 1 to n are covered
-        for (int i = 1; i <= numSubsets; i++) {
-            if (!covered.contains(i)) {
-                return false;
-            }
+        if (elemIn != null && elemIn >= 0 && elemIn < numSubsets) {
+            subsets.or(covered, elemIn);
         }
         
-        return true;
+        // Check if all elements from 1 to n are covered
+        return subsets.coversAll(covered);
+    }
+    
+    /**
+     * Opens an evaluation session that also keeps track of the set cover
+     * constraints
+     * @return a new session, bound to the empty solution
+     */
+    @Override
+    public IncrementalSC_QBF newSession() {
+        return new IncrementalSC_QBF(this, false);
     }
     
     /**
@@ -80,10 +100,7 @@ public class SC_QBF extends QBF {
      */
     @Override
     public Double evaluateInsertionCost(Integer elem, Solution<Integer> sol) {
-        Solution<Integer> tempSol = new Solution<>(sol);
-        tempSol.add(elem);
-        
-        if (!isCoverValid(tempSol)) {
+        if (!isCoverValid(sol, elem, null)) {
             return -1000000.0;
         }
         
@@ -95,10 +112,7 @@ public class SC_QBF extends QBF {
      */
     @Override
     public Double evaluateRemovalCost(Integer elem, Solution<Integer> sol) {
-        Solution<Integer> tempSol = new Solution<>(sol);
-        tempSol.remove(elem);
-        
-        if (!isCoverValid(tempSol)) {
+        if (!isCoverValid(sol, null, elem)) {
             return Double.POSITIVE_INFINITY;
         }
         
@@ -110,11 +124,7 @@ public class SC_QBF extends QBF {
      */
     @Override
     public Double evaluateExchangeCost(Integer elemIn, Integer elemOut, Solution<Integer> sol) {
-        Solution<Integer> tempSol = new Solution<>(sol);
-        tempSol.remove(elemOut);
-        tempSol.add(elemIn);
-        
-        if (!isCoverValid(tempSol)) {
+        if (!isCoverValid(sol, elemIn, elemOut)) {
             return Double.POSITIVE_INFINITY;
         }
         
@@ -122,61 +132,57 @@ public class SC_QBF extends QBF {
     }
     
     /**
-     * Reads the SC-QBF instance from file
+     * Reads the SC-QBF instance from file, or from its binary cache if it is
+     * up to date
      */
     @Override
     protected Integer readInput(String filename) throws IOException {
-        Reader fileInst = new BufferedReader(new FileReader(filename));
-        StreamTokenizer stok = new StreamTokenizer(fileInst);
-        
-        // Read n (number of variables/subsets)
-        stok.nextToken();
-        numSubsets = (int) stok.nval;
-        Integer _size = numSubsets;
-        
-        // Initialize subsets collection
-        subsets = new ArrayList<>(numSubsets);
-        for (int i = 0; i < numSubsets; i++) {
-            subsets.add(new HashSet<>());
-        }
-        
-        // Read number of elements covered by each subset
-        int[] coverSizes = new int[numSubsets];
-        for (int i = 0; i < numSubsets; i++) {
-            stok.nextToken();
-            coverSizes[i] = (int) stok.nval;
+        InstanceCache.Instance instance = InstanceCache.read(filename, InstanceCache.SC_QBF);
+        if (instance == null) {
+            instance = parseInput(filename);
+            InstanceCache.write(filename, InstanceCache.SC_QBF, instance);
         }
         
-        // Read elements covered by each subset
-        for (int i = 0; i < numSubsets; i++) {
-            for (int j = 0; j < coverSizes[i]; j++) {
-                stok.nextToken();
-                int element = (int) stok.nval;
-                subsets.get(i).add(element);
+        numSubsets = instance.n;
+        subsets = new SubsetMatrix(numSubsets, instance.subsets);
+        coveredScratch = subsets.newBitSet();
+        matrix = QBFMatrix.fromUpperTriangle(numSubsets, instance.offsets, instance.columns, instance.values);
+        return numSubsets;
+    }
+    
+    /**
+     * Parses the SC-QBF instance file
+     */
+    private static InstanceCache.Instance parseInput(String filename) throws IOException {
+        try (InstanceParser parser = new InstanceParser(filename)) {
+            // Read n (number of variables/subsets)
+            int n = parser.nextInt("the number of subsets", Integer.MAX_VALUE - 1);
+            
+            // Read number of elements covered by each subset
+            int[] coverSizes = new int[n];
+            for (int i = 0; i < n; i++) {
+                coverSizes[i] = parser.nextInt("a subset size", Integer.MAX_VALUE);
             }
-        }
-        
-        // Read the QBF matrix A
-        A = new Double[_size][_size];
-        for (int i = 0; i < _size; i++) {
-            for (int j = i; j < _size; j++) {
-                stok.nextToken();
-                A[i][j] = stok.nval;
-                if (j > i) {
-                    A[j][i] = 0.0;
+            
+            // Read elements covered by each subset
+            int[][] covers = new int[n][];
+            for (int i = 0; i < n; i++) {
+                covers[i] = new int[coverSizes[i]];
+                for (int j = 0; j < coverSizes[i]; j++) {
+                    covers[i][j] = parser.nextInt();
                 }
             }
+            
+            // Read the QBF matrix A (upper triangle only)
+            return readCoefficients(parser, n, covers);
         }
-        
-        fileInst.close();
-        return _size;
     }
     
     /**
      * Gets the subsets for the SC-QBF instance
-     * @return ArrayList of sets representing the subsets
+     * @return the subsets, restricted to the elements 1..n
      */
-    public ArrayList<Set<Integer>> getSubsets() {
+    public SubsetMatrix getSubsets() {
         return subsets;
     }
     
@@ -186,7 +192,7 @@ public class SC_QBF extends QBF {
     public void printSubsets() {
         System.out.println("Subsets structure:");
         for (int i = 0; i < numSubsets; i++) {
-            System.out.println("S" + (i+1) + ": " + subsets.get(i));
+            System.out.println("S" + (i+1) + ": " + subsets.toString(i));
         }
     }
     
@@ -0,0 +1,314 @@
+package problems.scqbf;
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of the subsets of a SC-QBF instance. Each subset is
+ * stored both as a row of bits over the universe {1, ..., n}, where element e
+ * is bit e-1, and as a list of elements in CSR (compressed sparse row) layout.
+ * The bit rows turn unions, differences and cover checks into word-parallel
+ * OR/AND/popcount operations, while the CSR lists allow iterating over the
+ * elements of a subset in ascending order. An inverted index, also in CSR
+ * layout, gives the subsets covering each element.
+ *
+ * Sets of elements handled by the word-parallel operations are plain
+ * {@code long[]} arrays obtained from {@link #newBitSet()}.
+ */
+public class SubsetMatrix {
+
+    /**
+     * Number of subsets
+     */
+    private final int numSubsets;
+
+    /**
+     * Number of elements n of the universe
+     */
+    private final int numElements;
+
+    /**
+     * Number of 64-bit words of each row
+     */
+    private final int words;
+
+    /**
+     * Bit rows of the subsets, row i starting at index i*words
+     */
+    private final long[] rows;
+
+    /**
+     * Elements of subset i are elements[offsets[i]] to elements[offsets[i+1]-1]
+     */
+    private final int[] offsets;
+    private final int[] elements;
+
+    /**
+     * Subsets covering element e are coverers[covererOffsets[e]] to
+     * coverers[covererOffsets[e+1]-1], in ascending order
+     */
+    private final int[] covererOffsets;
+    private final int[] coverers;
+
+    /**
+     * Bit row with every element of the universe set
+     */
+    private final long[] universe;
+
+    /**
+     * Constructor for SubsetMatrix class. Repeated elements and elements
+     * outside the universe are discarded.
+     * @param numElements Number of elements n of the universe
+     * @param subsets Elements covered by each subset
+     */
+    public SubsetMatrix(int numElements, int[][] subsets) {
+        this.numSubsets = subsets.length;
+        this.numElements = numElements;
+        this.words = (numElements + 63) >>> 6;
+        this.rows = new long[numSubsets * words];
+
+        universe = new long[words];
+        for (int e = 1; e <= numElements; e++) {
+            universe[(e - 1) >>> 6] |= 1L << (e - 1);
+        }
+
+        // Fill the bit rows and count the distinct elements of each subset
+        offsets = new int[numSubsets + 1];
+        for (int i = 0; i < numSubsets; i++) {
+            int base = i * words;
+            for (int e : subsets[i]) {
+                if (e >= 1 && e <= numElements) {
+                    rows[base + ((e - 1) >>> 6)] |= 1L << (e - 1);
+                }
+            }
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(rows[base + w]);
+            }
+            offsets[i + 1] = offsets[i] + count;
+        }
+
+        // Build the CSR lists from the bit rows, in ascending order
+        elements = new int[offsets[numSubsets]];
+        for (int i = 0; i < numSubsets; i++) {
+            int base = i * words;
+            int k = offsets[i];
+            for (int w = 0; w < words; w++) {
+                long word = rows[base + w];
+                while (word != 0) {
+                    elements[k++] = (w << 6) + Long.numberOfTrailingZeros(word) + 1;
+                    word &= word - 1;
+                }
+            }
+        }
+
+        // Build the inverted index, element -> subsets covering it
+        covererOffsets = new int[numElements + 2];
+        for (int e : elements) {
+            covererOffsets[e + 1]++;
+        }
+        for (int e = 1; e <= numElements; e++) {
+            covererOffsets[e + 1] += covererOffsets[e];
+        }
+        coverers = new int[elements.length];
+        int[] next = Arrays.copyOf(covererOffsets, numElements + 1);
+        for (int i = 0; i < numSubsets; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                coverers[next[elements[k]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return the number of subsets
+     */
+    public int getNumSubsets() {
+        return numSubsets;
+    }
+
+    /**
+     * @return the number of elements n of the universe
+     */
+    public int getNumElements() {
+        return numElements;
+    }
+
+    /**
+     * @param subset Index of a subset
+     * @return the number of elements covered by the subset
+     */
+    public int size(int subset) {
+        return offsets[subset + 1] - offsets[subset];
+    }
+
+    /**
+     * Gets the CSR offsets: the elements of subset i are found in
+     * {@link #getElements()} from offsets[i] (inclusive) to offsets[i+1]
+     * (exclusive). The array must not be modified.
+     * @return the offsets of each subset
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Gets the CSR elements of every subset. The array must not be modified.
+     * @return the concatenated elements of the subsets
+     */
+    public int[] getElements() {
+        return elements;
+    }
+
+    /**
+     * @param subset Index of a subset
+     * @return a copy of the elements covered by the subset, in ascending order
+     */
+    public int[] getElements(int subset) {
+        return Arrays.copyOfRange(elements, offsets[subset], offsets[subset + 1]);
+    }
+
+    /**
+     * Gets the offsets of the inverted index: the subsets covering element e
+     * are found in {@link #getCoverers()} from offsets[e] (inclusive) to
+     * offsets[e+1] (exclusive). The array must not be modified.
+     * @return the offsets of each element
+     */
+    public int[] getCovererOffsets() {
+        return covererOffsets;
+    }
+
+    /**
+     * Gets the concatenated lists of subsets covering each element. The
+     * array must not be modified.
+     * @return the subsets covering each element
+     */
+    public int[] getCoverers() {
+        return coverers;
+    }
+
+    /**
+     * @param element An element of the universe
+     * @return a copy of the subsets covering the element, in ascending order
+     */
+    public int[] getCoverers(int element) {
+        return Arrays.copyOfRange(coverers, covererOffsets[element], covererOffsets[element + 1]);
+    }
+
+    /**
+     * Checks whether a subset covers an element, in O(1)
+     * @param subset Index of a subset
+     * @param element An element of the universe
+     * @return true if the subset covers the element
+     */
+    public boolean contains(int subset, int element) {
+        return (rows[subset * words + ((element - 1) >>> 6)] & (1L << (element - 1))) != 0;
+    }
+
+    /**
+     * @return a new empty set of elements
+     */
+    public long[] newBitSet() {
+        return new long[words];
+    }
+
+    /**
+     * Empties a set of elements
+     * @param set The set to be emptied
+     */
+    public void clear(long[] set) {
+        Arrays.fill(set, 0L);
+    }
+
+    /**
+     * Makes a set contain the whole universe
+     * @param set The set to be filled
+     */
+    public void fill(long[] set) {
+        System.arraycopy(universe, 0, set, 0, words);
+    }
+
+    /**
+     * Adds the elements of a subset to a set (union)
+     * @param set The set being updated
+     * @param subset Index of a subset
+     */
+    public void or(long[] set, int subset) {
+        int base = subset * words;
+        for (int w = 0; w < words; w++) {
+            set[w] |= rows[base + w];
+        }
+    }
+
+    /**
+     * Removes the elements of a subset from a set (difference)
+     * @param set The set being updated
+     * @param subset Index of a subset
+     */
+    public void andNot(long[] set, int subset) {
+        int base = subset * words;
+        for (int w = 0; w < words; w++) {
+            set[w] &= ~rows[base + w];
+        }
+    }
+
+    /**
+     * Checks whether a subset covers some element of a set
+     * @param set A set of elements
+     * @param subset Index of a subset
+     * @return true if the intersection is not empty
+     */
+    public boolean intersects(long[] set, int subset) {
+        int base = subset * words;
+        for (int w = 0; w < words; w++) {
+            if ((set[w] & rows[base + w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param set A set of elements
+     * @return true if the set has no elements
+     */
+    public boolean isEmpty(long[] set) {
+        for (int w = 0; w < words; w++) {
+            if (set[w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param set A set of elements
+     * @return true if the set contains every element of the universe
+     */
+    public boolean coversAll(long[] set) {
+        for (int w = 0; w < words; w++) {
+            if ((universe[w] & ~set[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param set A set of elements
+     * @return the number of elements of the universe missing from the set
+     */
+    public int countUncovered(long[] set) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(universe[w] & ~set[w]);
+        }
+        return count;
+    }
+
+    /**
+     * @param subset Index of a subset
+     * @return the elements of the subset, formatted as a list
+     */
+    public String toString(int subset) {
+        return Arrays.toString(getElements(subset));
+    }
+}
@@ -0,0 +1,232 @@
+package problems.scqbf.solvers;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import problems.scqbf.SC_QBF_Inverse;
+import solutions.Solution;
+
+/**
+ * Executes a grid of TS_SC_QBF experiments on a bounded pool of workers. Each
+ * (instance, configuration, seed) job loads its own copy of the instance and
+ * runs its own search, so jobs share no mutable state. Jobs are scheduled
+ * from the largest instance to the smallest one, which keeps the longest
+ * runs from being left for the end of the grid.
+ *
+ * Results are written through a single {@link ResultSink} with the CSV
+ * schema of {@link TS_SC_QBF#runExperiments(List)}, one row per job in order
+ * of completion. The execution time of a row is measured around the search
+ * of its job only.
+ */
+public class ExperimentExecutor {
+
+    /**
+     * CSV header of the results file
+     */
+    public static final String HEADER = "Configuration,Instance,BestValue,ExecutionTime(s),Iterations,StoppingCriteria";
+
+    /**
+     * A configuration of the search
+     */
+    public static class Configuration {
+        public final String name;
+        public final TS_SC_QBF.SearchStrategy strategy;
+        public final TS_SC_QBF.SearchMethod method;
+        public final int tenure;
+
+        public Configuration(String name, TS_SC_QBF.SearchStrategy strategy,
+                             TS_SC_QBF.SearchMethod method, int tenure) {
+            this.name = name;
+            this.strategy = strategy;
+            this.method = method;
+            this.tenure = tenure;
+        }
+    }
+
+    /**
+     * Thread-safe sink of CSV rows. Rows are buffered and written in batches,
+     * and the remaining rows are written when the sink is closed.
+     */
+    public static class ResultSink implements AutoCloseable {
+        private final Writer writer;
+        private final int batchSize;
+        private final StringBuilder buffer = new StringBuilder();
+        private int pending = 0;
+
+        /**
+         * Constructor for ResultSink class, which writes the CSV header
+         * @param filename Name of the CSV file, which is overwritten
+         * @param batchSize Number of rows buffered before each write
+         * @throws IOException Necessary for I/O operations
+         */
+        public ResultSink(String filename, int batchSize) throws IOException {
+            this.writer = new BufferedWriter(new FileWriter(filename));
+            this.batchSize = Math.max(1, batchSize);
+            writer.write(HEADER + "\n");
+            writer.flush();
+        }
+
+        /**
+         * Appends a row, writing the buffered rows if the batch is full
+         * @param row The row, without line terminator
+         * @throws IOException Necessary for I/O operations
+         */
+        public synchronized void append(String row) throws IOException {
+            buffer.append(row).append('\n');
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered rows
+         * @throws IOException Necessary for I/O operations
+         */
+        public synchronized void flush() throws IOException {
+            writer.write(buffer.toString());
+            writer.flush();
+            buffer.setLength(0);
+            pending = 0;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            flush();
+            writer.close();
+        }
+    }
+
+    /**
+     * A single run of the grid
+     */
+    private static class Job {
+        final String instanceFile;
+        final long instanceSize;
+        final Configuration configuration;
+        final long seed;
+
+        Job(String instanceFile, long instanceSize, Configuration configuration, long seed) {
+            this.instanceFile = instanceFile;
+            this.instanceSize = instanceSize;
+            this.configuration = configuration;
+            this.seed = seed;
+        }
+    }
+
+    private final int threads;
+    private final int iterations;
+    private int batchSize = 16;
+
+    /**
+     * Constructor for ExperimentExecutor class
+     * @param threads Number of jobs executed at the same time
+     * @param iterations Number of iterations of each search
+     */
+    public ExperimentExecutor(int threads, int iterations) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Sets the number of rows buffered by the sink before each write
+     * @param batchSize Number of rows per batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs every (instance, configuration, seed) job of the grid
+     * @param instanceFiles Instances of the grid
+     * @param configurations Configurations of the grid
+     * @param seeds Seeds of the grid
+     * @param outputFile Name of the CSV results file
+     * @throws IOException If some job or the sink fails
+     */
+    public void run(List<String> instanceFiles, List<Configuration> configurations, long[] seeds,
+                    String outputFile) throws IOException {
+
+        // Largest instances first; the sort is stable, so the grid order is
+        // kept among instances of the same size
+        List<Job> jobs = new ArrayList<>();
+        for (String instanceFile : instanceFiles) {
+            long size = new File(instanceFile).length();
+            for (Configuration configuration : configurations) {
+                for (long seed : seeds) {
+                    jobs.add(new Job(instanceFile, size, configuration, seed));
+                }
+            }
+        }
+        jobs.sort(Comparator.comparingLong((Job job) -> job.instanceSize).reversed());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ResultSink sink = new ResultSink(outputFile, batchSize)) {
+            List<Future<?>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                futures.add(executor.submit(() -> {
+                    sink.append(execute(job));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Experiments interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Experiment failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a single job
+     * @param job The job
+     * @return the CSV row of the job
+     * @throws IOException Necessary for I/O operations
+     */
+    private String execute(Job job) throws IOException {
+        Configuration configuration = job.configuration;
+        String instanceName = job.instanceFile.substring(job.instanceFile.lastIndexOf('/') + 1);
+        System.out.println("  Running configuration: " + configuration.name + " on " + instanceName);
+
+        SC_QBF_Inverse problem = new SC_QBF_Inverse(job.instanceFile);
+        TS_SC_QBF ts = new TS_SC_QBF(problem, configuration.tenure, iterations,
+                                     configuration.strategy, configuration.method);
+        ts.verbose = false;
+        ts.setSeed(job.seed);
+
+        long startTime = System.nanoTime();
+        Solution<Integer> solution = ts.solve();
+        long executionTime = System.nanoTime() - startTime;
+
+        return String.format("%s,%s,%.2f,%.2f,%d,%s",
+            configuration.name,
+            instanceName,
+            -solution.cost, // Convert back to maximization value
+            executionTime / 1e9,
+            ts.getTotalIterations(),
+            ts.getStoppingCriteria()
+        );
+    }
+}
@@ -1,18 +1,24 @@
 package problems.scqbf.solvers;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.ParallelNeighborhood;
+import metaheuristics.tabusearch.SearchMetrics;
+import metaheuristics.tabusearch.StopReason;
+import metaheuristics.tabusearch.TabuMemory;
+import metaheuristics.tabusearch.Termination;
+import problems.scqbf.CoverCounter;
+import problems.scqbf.IncrementalSC_QBF;
 import problems.scqbf.SC_QBF_Inverse;
+import problems.scqbf.SubsetMatrix;
+import solutions.BitSetSolution;
 import solutions.Solution;
 
 public class TS_SC_QBF extends AbstractTS<Integer> {
@@ -33,20 +39,17 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
     // Configuration parameters
     private SearchStrategy strategy;
     private SearchMethod searchMethod;
+    // Default stopping criteria besides the iterations (see defaultTermination)
     private int maxIterationsWithoutImprovement = 100;
-    private int maxIterations = 1000;
     private long maxTimeMillis = 30 * 60 * 1000; // 30 minutes
-    private long startTime;
     
     // Strategy-specific parameters
     private int diversificationInterval = 50;
     private int intensificationInterval = 30;
     private Solution<Integer> bestLocalSolution;
-    private int iterationsWithoutImprovement = 0;
     
-    // Tracking for experiments
-    private String stoppingCriteria;
-    private int totalIterations;
+    // Typed view of the session, for feasibility queries and unchecked deltas
+    private IncrementalSC_QBF scSession;
     
     public TS_SC_QBF(SC_QBF_Inverse objFunction, Integer tenure, Integer iterations, 
                      SearchStrategy strategy, SearchMethod searchMethod) {
@@ -72,8 +75,13 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
     }
     
     @Override
-    public ArrayDeque<Integer> makeTL() {
-        return new ArrayDeque<>(tenure);
+    public TabuMemory makeTL() {
+        return new TabuMemory(ObjFunction.getDomainSize(), tenure);
+    }
+    
+    @Override
+    public IncrementalSC_QBF makeSession() {
+        return ((SC_QBF_Inverse) ObjFunction).newSession();
     }
     
     @Override
@@ -83,44 +91,34 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
     
     @Override
     public Solution<Integer> createEmptySol() {
-        return new Solution<>();
+        return new BitSetSolution(ObjFunction.getDomainSize());
     }
     
     // Create a valid initial solution that covers all elements
     private Solution<Integer> createValidInitialSolution() {
-        Solution<Integer> initialSol = new Solution<>();
+        Solution<Integer> initialSol = createEmptySol();
         SC_QBF_Inverse scqbf = (SC_QBF_Inverse) ObjFunction;
         
         // Greedy approach: add subsets until all elements are covered
-        Set<Integer> uncovered = new HashSet<>();
-        for (int i = 1; i <= ObjFunction.getDomainSize(); i++) {
-            uncovered.add(i);
-        }
+        SubsetMatrix subsets = scqbf.getSubsets();
+        long[] uncovered = subsets.newBitSet();
+        subsets.fill(uncovered);
         
         ArrayList<Integer> candidates = makeCL();
         Collections.shuffle(candidates, rng);
         
         for (Integer subset : candidates) {
-            if (uncovered.isEmpty()) break;
+            if (subsets.isEmpty(uncovered)) break;
             
             // Check if this subset covers any uncovered element
-            Set<Integer> covered = scqbf.getSubsets().get(subset);
-            boolean useful = false;
-            for (Integer elem : covered) {
-                if (uncovered.contains(elem)) {
-                    useful = true;
-                    break;
-                }
-            }
-            
-            if (useful) {
+            if (subsets.intersects(uncovered, subset)) {
                 initialSol.add(subset);
-                uncovered.removeAll(covered);
+                subsets.andNot(uncovered, subset);
             }
         }
         
         // Ensure solution is valid
-        if (!uncovered.isEmpty()) {
+        if (!subsets.isEmpty(uncovered)) {
             // Add all subsets if necessary (shouldn't happen with valid instances)
             for (Integer subset : candidates) {
                 if (!initialSol.contains(subset)) {
@@ -135,162 +133,146 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
     
     @Override
     public Solution<Integer> neighborhoodMove() {
-        ArrayList<Integer> CL = makeCL();
-        Solution<Integer> bestNeighbor = null;
-        double bestCost = sol.cost; // Start with current cost
+        int n = ObjFunction.getDomainSize();
         
-        // Variables for move tracking
-        Integer bestElemIn = null;
-        Integer bestElemOut = null;
+        // Moves are evaluated through the deltas of the session, and only
+        // feasible moves are generated (see scanMoves). Each subset is a task
+        // of the neighborhood engine, which scans them in parallel in
+        // best-improving searches.
+        ParallelNeighborhood.BestMove best;
+        if (searchMethod == SearchMethod.FIRST_IMPROVING) {
+            best = getNeighborhood().findFirst(n, (elem, acc) -> scanMoves(elem, acc, true));
+        } else {
+            best = getNeighborhood().findBest(n, (elem, acc) -> scanMoves(elem, acc, false));
+        }
+        double bestCost = best.isFound() ? best.getValue() : sol.cost;
+        int bestElemIn = best.getIn();
+        int bestElemOut = best.getOut();
         
-        SC_QBF_Inverse scqbf = (SC_QBF_Inverse) ObjFunction;
+        if (metrics != null) {
+            // Counts of the scan and type of the applied move
+            metrics.add(best);
+            if (bestElemIn >= 0 && bestElemOut >= 0) {
+                metrics.increment(SearchMetrics.Counter.EXCHANGES);
+            } else if (bestElemIn >= 0) {
+                metrics.increment(SearchMetrics.Counter.INSERTIONS);
+            } else if (bestElemOut >= 0) {
+                metrics.increment(SearchMetrics.Counter.REMOVALS);
+            }
+        }
         
-        if (searchMethod == SearchMethod.FIRST_IMPROVING) {
-            // First improving
-            for (Integer elem : CL) {
-                if (sol.contains(elem)) {
-                    // Try removal only if it maintains coverage
-                    if (!TL.contains(elem)) {
-                        Solution<Integer> neighbor = new Solution<>(sol);
-                        neighbor.remove(elem);
-                        
-                        if (scqbf.isCoverValid(neighbor)) {
-                            double cost = ObjFunction.evaluate(neighbor);
-                            if (cost < bestCost) {
-                                bestNeighbor = neighbor;
-                                bestCost = cost;
-                                bestElemOut = elem;
-                                bestElemIn = null;
-                                if (cost < sol.cost) {
-                                    break; // First improvement found
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    // Try insertion
-                    if (!TL.contains(elem)) {
-                        Solution<Integer> neighbor = new Solution<>(sol);
-                        neighbor.add(elem);
-                        double cost = ObjFunction.evaluate(neighbor);
-                        if (cost < bestCost) {
-                            bestNeighbor = neighbor;
-                            bestCost = cost;
-                            bestElemIn = elem;
-                            bestElemOut = null;
-                            if (cost < sol.cost) {
-                                break; // First improvement found
-                            }
-                        }
-                    }
+        // Update tabu list and solution
+        if (bestElemIn >= 0 || bestElemOut >= 0) {
+            if (bestElemIn >= 0) {
+                TL.markInserted(bestElemIn);
+            }
+            if (bestElemOut >= 0) {
+                TL.markRemoved(bestElemOut);
+            }
+            TL.advance();
+            
+            // Apply the move in place and notify the session
+            if (bestElemOut >= 0) {
+                sol.remove((Integer) bestElemOut);
+            }
+            if (bestElemIn >= 0) {
+                sol.add(bestElemIn);
+            }
+            if (bestElemIn >= 0 && bestElemOut >= 0) {
+                scSession.applyExchange(bestElemIn, bestElemOut);
+            } else if (bestElemIn >= 0) {
+                scSession.applyInsertion(bestElemIn);
+            } else {
+                scSession.applyRemoval(bestElemOut);
+            }
+            sol.cost = bestCost;
+        }
+        
+        return sol;
+    }
+    
+    /**
+     * Offers the improving moves involving a subset: its removal or
+     * insertion, followed by the swaps in which it leaves the solution. Moves
+     * are ranked by their position in the sequential scan of the subsets.
+     * Only reads the state of the search, so subsets may be scanned in
+     * parallel.
+     * @param elem The subset
+     * @param acc Accumulator of the best move
+     * @param firstImproving Whether to return after the first improving move
+     */
+    private void scanMoves(int elem, ParallelNeighborhood.BestMove acc, boolean firstImproving) {
+        int n = ObjFunction.getDomainSize();
+        CoverCounter cover = scSession.getCover();
+        long rank = (long) elem * (n + 1);
+        
+        boolean inSol = scSession.contains(elem);
+        boolean outTabu = inSol && TL.isRemovalTabu(elem);
+        if (metrics != null && outTabu) {
+            acc.count(SearchMetrics.Counter.TABU_REJECTIONS);
+        }
+        if (inSol) {
+            // Try removal only if elem is not the sole coverer of an element
+            if (!outTabu && cover.canRemove(elem)) {
+                double cost = sol.cost + scSession.evaluateRemovalQBF(elem);
+                if (metrics != null) {
+                    acc.count(SearchMetrics.Counter.REMOVAL_EVALUATIONS);
                 }
-                
-                // Try swap moves
-                if (sol.contains(elem)) {
-                    for (Integer other : CL) {
-                        if (!sol.contains(other) && !TL.contains(elem) && !TL.contains(other)) {
-                            Solution<Integer> neighbor = new Solution<>(sol);
-                            neighbor.remove(elem);
-                            neighbor.add(other);
-                            
-                            if (scqbf.isCoverValid(neighbor)) {
-                                double cost = ObjFunction.evaluate(neighbor);
-                                if (cost < bestCost) {
-                                    bestNeighbor = neighbor;
-                                    bestCost = cost;
-                                    bestElemIn = other;
-                                    bestElemOut = elem;
-                                    if (cost < sol.cost) {
-                                        break; // First improvement found
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    if (bestCost < sol.cost) {
-                        break;
-                    }
+                if (cost < sol.cost && acc.offer(cost, rank, -1, elem) && firstImproving) {
+                    return; // First improvement found
                 }
             }
         } else {
-            // Best improving
-            for (Integer elem : CL) {
-                if (sol.contains(elem)) {
-                    // Try removal only if it maintains coverage
-                    if (!TL.contains(elem)) {
-                        Solution<Integer> neighbor = new Solution<>(sol);
-                        neighbor.remove(elem);
-                        
-                        if (scqbf.isCoverValid(neighbor)) {
-                            double cost = ObjFunction.evaluate(neighbor);
-                            if (cost < bestCost) {
-                                bestNeighbor = neighbor;
-                                bestCost = cost;
-                                bestElemOut = elem;
-                                bestElemIn = null;
-                            }
-                        }
-                    }
-                } else {
-                    // Try insertion
-                    if (!TL.contains(elem)) {
-                        Solution<Integer> neighbor = new Solution<>(sol);
-                        neighbor.add(elem);
-                        double cost = ObjFunction.evaluate(neighbor);
-                        if (cost < bestCost) {
-                            bestNeighbor = neighbor;
-                            bestCost = cost;
-                            bestElemIn = elem;
-                            bestElemOut = null;
-                        }
-                    }
+            // Try insertion, always feasible since the incumbent is a valid cover
+            if (!TL.isInsertionTabu(elem)) {
+                double cost = sol.cost + scSession.evaluateInsertionQBF(elem);
+                if (metrics != null) {
+                    acc.count(SearchMetrics.Counter.INSERTION_EVALUATIONS);
                 }
-                
-                // Try swap moves
-                if (sol.contains(elem)) {
-                    for (Integer other : CL) {
-                        if (!sol.contains(other) && !TL.contains(elem) && !TL.contains(other)) {
-                            Solution<Integer> neighbor = new Solution<>(sol);
-                            neighbor.remove(elem);
-                            neighbor.add(other);
-                            
-                            if (scqbf.isCoverValid(neighbor)) {
-                                double cost = ObjFunction.evaluate(neighbor);
-                                if (cost < bestCost) {
-                                    bestNeighbor = neighbor;
-                                    bestCost = cost;
-                                    bestElemIn = other;
-                                    bestElemOut = elem;
-                                }
-                            }
-                        }
-                    }
+                if (cost < sol.cost && acc.offer(cost, rank, elem, -1) && firstImproving) {
+                    return; // First improvement found
                 }
+            } else if (metrics != null) {
+                acc.count(SearchMetrics.Counter.TABU_REJECTIONS);
             }
         }
         
-        // Update tabu list and solution
-        if (bestNeighbor != null) {
-            if (bestElemIn != null) {
-                TL.add(bestElemIn);
-                if (TL.size() > tenure) {
-                    TL.poll();
+        // Try swap moves: the incoming subset must cover every element
+        // covered only by elem, so when there is such an element only its
+        // coverers are tried
+        if (inSol && !outTabu) {
+            SubsetMatrix subsets = ((SC_QBF_Inverse) ObjFunction).getSubsets();
+            int[] covererOffsets = subsets.getCovererOffsets();
+            int[] coverers = subsets.getCoverers();
+            int pivot = cover.getUniqueElement(elem);
+            int from = pivot == 0 ? 0 : covererOffsets[pivot];
+            int to = pivot == 0 ? n : covererOffsets[pivot + 1];
+            for (int k = from; k < to; k++) {
+                int other = pivot == 0 ? k : coverers[k];
+                if (scSession.contains(other) || !cover.isCoveredAfter(other, elem)) {
+                    continue;
                 }
-            }
-            if (bestElemOut != null) {
-                TL.add(bestElemOut);
-                if (TL.size() > tenure) {
-                    TL.poll();
+                if (TL.isInsertionTabu(other)) {
+                    if (metrics != null) {
+                        acc.count(SearchMetrics.Counter.TABU_REJECTIONS);
+                    }
+                    continue;
+                }
+                double cost = sol.cost + scSession.evaluateExchangeQBF(other, elem);
+                if (metrics != null) {
+                    acc.count(SearchMetrics.Counter.EXCHANGE_EVALUATIONS);
+                }
+                if (cost < sol.cost && acc.offer(cost, rank + 1 + (k - from), other, elem) && firstImproving) {
+                    return; // First improvement found
                 }
             }
-            sol = bestNeighbor;
         }
-        
-        return sol;
     }
     
     private void diversificationRestart() {
-        SC_QBF_Inverse scqbf = (SC_QBF_Inverse) ObjFunction;
+        if (metrics != null) {
+            metrics.increment(SearchMetrics.Counter.RESTARTS);
+        }
         
         // Create frequency memory
         int[] frequency = new int[ObjFunction.getDomainSize()];
@@ -308,7 +290,7 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
         
         if (!rarelyUsed.isEmpty()) {
             // Start from best solution
-            sol = new Solution<>(bestSol);
+            sol.copyFrom(bestSol);
             Collections.shuffle(rarelyUsed, rng);
             
             // Try to add rarely used elements
@@ -320,181 +302,143 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
                     added++;
                 }
             }
+            session.bind(sol);
             
             // Remove redundant elements while maintaining coverage
+            CoverCounter cover = scSession.getCover();
             ArrayList<Integer> toCheck = new ArrayList<>(sol);
             Collections.shuffle(toCheck, rng);
             
             for (Integer elem : toCheck) {
-                Solution<Integer> test = new Solution<>(sol);
-                test.remove(elem);
-                if (scqbf.isCoverValid(test)) {
-                    sol = test;
+                if (cover.canRemove(elem)) {
+                    sol.remove(elem);
+                    session.applyRemoval(elem);
                 }
             }
             
+            // Rebuild the session from scratch, discarding rounding errors
             ObjFunction.evaluate(sol);
+            session.bind(sol);
         }
     }
     
     private void intensificationRestart() {
+        if (metrics != null) {
+            metrics.increment(SearchMetrics.Counter.RESTARTS);
+        }
+        
         // Restart from best solution
-        sol = new Solution<>(bestSol);
+        sol.copyFrom(bestSol);
+        session.bind(sol);
         
         // Clear tabu list
         TL.clear();
         
         // Intensive local search
         for (int i = 0; i < 20; i++) {
-            Solution<Integer> oldSol = new Solution<>(sol);
+            double oldCost = sol.cost;
             neighborhoodMove();
-            if (sol.cost >= oldSol.cost) {
+            if (sol.cost >= oldCost) {
                 break;
             }
         }
     }
     
+    // Stops after the iterations given to the search, 30 minutes or 100
+    // iterations without improvement, whichever comes first
     @Override
-    public Solution<Integer> solve() {
-        startTime = System.currentTimeMillis();
-        
-        // Create valid initial solution
+    protected Termination defaultTermination() {
+        return super.defaultTermination()
+                .setTimeLimit(maxTimeMillis, TimeUnit.MILLISECONDS)
+                .setMaxIterationsWithoutImprovement(maxIterationsWithoutImprovement);
+    }
+    
+    // Starts from a valid cover instead of the constructive heuristic
+    @Override
+    protected void initialize() {
         sol = createValidInitialSolution();
-        bestSol = new Solution<>(sol);
-        bestLocalSolution = new Solution<>(sol);
+        session = scSession = makeSession();
+        session.bind(sol);
+        bestSol = createEmptySol();
+        bestSol.copyFrom(sol);
+        bestLocalSolution = createEmptySol();
+        bestLocalSolution.copyFrom(sol);
         TL = makeTL();
-        
-        totalIterations = 0;
-        iterationsWithoutImprovement = 0;
-        
-        for (int i = 0; i < iterations; i++) {
-            totalIterations++;
-            
-            // Check stopping criteria
-            if (System.currentTimeMillis() - startTime > maxTimeMillis) {
-                stoppingCriteria = "TIME_LIMIT";
-                break;
-            }
-            
-            if (totalIterations >= maxIterations) {
-                stoppingCriteria = "MAX_ITERATIONS";
-                break;
-            }
-            
-            if (iterationsWithoutImprovement >= maxIterationsWithoutImprovement) {
-                stoppingCriteria = "NO_IMPROVEMENT";
-                break;
-            }
-            
-            neighborhoodMove();
-            
-            // Update best solution
-            if (sol.cost < bestSol.cost) {
-                bestSol = new Solution<>(sol);
-                iterationsWithoutImprovement = 0;
-                if (verbose) {
-                    System.out.println("(Iter. " + i + ") BestSol = " + bestSol.cost);
-                }
-            } else {
-                iterationsWithoutImprovement++;
+    }
+    
+    // Apply strategy-specific operations
+    @Override
+    protected void afterMove(long i) {
+        if (strategy == SearchStrategy.DIVERSIFICATION_RESTART) {
+            if (i > 0 && i % diversificationInterval == 0) {
+                diversificationRestart();
             }
-            
-            // Apply strategy-specific operations
-            if (strategy == SearchStrategy.DIVERSIFICATION_RESTART) {
-                if (i > 0 && i % diversificationInterval == 0) {
-                    diversificationRestart();
-                }
-            } else if (strategy == SearchStrategy.INTENSIFICATION_RESTART) {
-                if (i > 0 && i % intensificationInterval == 0) {
-                    intensificationRestart();
-                }
+        } else if (strategy == SearchStrategy.INTENSIFICATION_RESTART) {
+            if (i > 0 && i % intensificationInterval == 0) {
+                intensificationRestart();
             }
         }
-        
-        if (stoppingCriteria == null) {
-            stoppingCriteria = "ITERATIONS_COMPLETE";
-        }
-        
-        return bestSol;
+    }
+    
+    // Iterations as counted in the CSV: like the original loop, the iteration
+    // in which a criterion other than MAX_ITERATIONS fires is counted as well
+    public int getTotalIterations() {
+        StopReason reason = getStopReason();
+        long iterations = getIterationsPerformed();
+        return (int) (reason != null && reason != StopReason.MAX_ITERATIONS ? iterations + 1 : iterations);
+    }
+    
+    public String getStoppingCriteria() {
+        StopReason reason = getStopReason();
+        return reason != null ? reason.name() : null;
     }
     
     // Experimental framework
     public static void runExperiments(List<String> instanceFiles) throws IOException {
-        FileWriter csvWriter = new FileWriter("results.csv");
-        csvWriter.append("Configuration,Instance,BestValue,ExecutionTime(s),Iterations,StoppingCriteria\n");
-        
-        // Configuration combinations
+        runExperiments(instanceFiles, Runtime.getRuntime().availableProcessors());
+    }
+    
+    // Runs the grid of configurations with a bounded number of parallel jobs
+    public static void runExperiments(List<String> instanceFiles, int threads) throws IOException {
+        ExperimentExecutor executor = new ExperimentExecutor(threads, 1000);
+        executor.run(instanceFiles, defaultConfigurations(), new long[] { 0 }, "results.csv");
+        System.out.println("\nExperiments completed. Results saved to results.csv");
+    }
+    
+    // Configuration combinations of the experiments
+    public static List<ExperimentExecutor.Configuration> defaultConfigurations() {
         int tenure1 = 10;
         int tenure2 = 20;
         
-        for (String instanceFile : instanceFiles) {
-            System.out.println("\nProcessing instance: " + instanceFile);
-            
+        return Arrays.asList(
             // 1. STANDARD
-            runConfiguration(csvWriter, instanceFile, "STANDARD", 
-                           SearchStrategy.STANDARD, SearchMethod.FIRST_IMPROVING, tenure1);
-            
+            new ExperimentExecutor.Configuration("STANDARD",
+                SearchStrategy.STANDARD, SearchMethod.FIRST_IMPROVING, tenure1),
             // 2. STANDARD+BEST
-            runConfiguration(csvWriter, instanceFile, "STANDARD+BEST", 
-                           SearchStrategy.STANDARD, SearchMethod.BEST_IMPROVING, tenure1);
-            
+            new ExperimentExecutor.Configuration("STANDARD+BEST",
+                SearchStrategy.STANDARD, SearchMethod.BEST_IMPROVING, tenure1),
             // 3. STANDARD+TENURE
-            runConfiguration(csvWriter, instanceFile, "STANDARD+TENURE", 
-                           SearchStrategy.STANDARD, SearchMethod.FIRST_IMPROVING, tenure2);
-            
+            new ExperimentExecutor.Configuration("STANDARD+TENURE",
+                SearchStrategy.STANDARD, SearchMethod.FIRST_IMPROVING, tenure2),
             // 4. STANDARD+METHOD1 (Diversification)
-            runConfiguration(csvWriter, instanceFile, "STANDARD+DIVERSIFICATION", 
-                           SearchStrategy.DIVERSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure1);
-            
+            new ExperimentExecutor.Configuration("STANDARD+DIVERSIFICATION",
+                SearchStrategy.DIVERSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure1),
             // 5. STANDARD+METHOD2 (Intensification)
-            runConfiguration(csvWriter, instanceFile, "STANDARD+INTENSIFICATION", 
-                           SearchStrategy.INTENSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure1);
-            
+            new ExperimentExecutor.Configuration("STANDARD+INTENSIFICATION",
+                SearchStrategy.INTENSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure1),
             // 6. STANDARD+METHOD1+BEST (Diversification)
-            runConfiguration(csvWriter, instanceFile, "DIVERSIFICATION+BEST", 
-                           SearchStrategy.DIVERSIFICATION_RESTART, SearchMethod.BEST_IMPROVING, tenure1);
-
+            new ExperimentExecutor.Configuration("DIVERSIFICATION+BEST",
+                SearchStrategy.DIVERSIFICATION_RESTART, SearchMethod.BEST_IMPROVING, tenure1),
             // 7. STANDARD+METHOD2+BEST (Intensification)
-            runConfiguration(csvWriter, instanceFile, "INTENSIFICATION+BEST", 
-                           SearchStrategy.INTENSIFICATION_RESTART, SearchMethod.BEST_IMPROVING, tenure1);
-            
+            new ExperimentExecutor.Configuration("INTENSIFICATION+BEST",
+                SearchStrategy.INTENSIFICATION_RESTART, SearchMethod.BEST_IMPROVING, tenure1),
             // 8. STANDARD+METHOD1+TENURE (Diversification)
-            runConfiguration(csvWriter, instanceFile, "DIVERSIFICATION+TENURE", 
-                           SearchStrategy.DIVERSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure2);
-
+            new ExperimentExecutor.Configuration("DIVERSIFICATION+TENURE",
+                SearchStrategy.DIVERSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure2),
             // 9. STANDARD+METHOD2+TENURE (Intensification)
-            runConfiguration(csvWriter, instanceFile, "INTENSIFICATION+TENURE", 
-                           SearchStrategy.INTENSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure2);
-        }
-        
-        csvWriter.flush();
-        csvWriter.close();
-        System.out.println("\nExperiments completed. Results saved to results.csv");
-    }
-    
-    private static void runConfiguration(FileWriter csvWriter, String instanceFile, String configName,
-                                        SearchStrategy strategy, SearchMethod method, int tenure) 
-                                        throws IOException {
-        System.out.println("  Running configuration: " + configName);
-        
-        SC_QBF_Inverse problem = new SC_QBF_Inverse(instanceFile);
-        TS_SC_QBF ts = new TS_SC_QBF(problem, tenure, 1000, strategy, method);
-        ts.verbose = false;
-        
-        long startTime = System.currentTimeMillis();
-        Solution<Integer> solution = ts.solve();
-        long executionTime = System.currentTimeMillis() - startTime;
-        
-        // Write results
-        csvWriter.append(String.format("%s,%s,%.2f,%.2f,%d,%s\n",
-            configName,
-            instanceFile.substring(instanceFile.lastIndexOf('/') + 1),
-            -solution.cost, // Convert back to maximization value
-            executionTime / 1000.0,
-            ts.totalIterations,
-            ts.stoppingCriteria
-        ));
-        csvWriter.flush();
+            new ExperimentExecutor.Configuration("INTENSIFICATION+TENURE",
+                SearchStrategy.INTENSIFICATION_RESTART, SearchMethod.FIRST_IMPROVING, tenure2)
+        );
     }
     
     public static void main(String[] args) throws IOException {
@@ -518,10 +462,5 @@ public class TS_SC_QBF extends AbstractTS<Integer> {
         
         runExperiments(instances);
         
-        // FileWriter csvWriter = new FileWriter("results.csv");
-        // int tenure1 = 10;
-
-        // runConfiguration(csvWriter, "instances/scqbf/n200p1.txt", "STANDARD", 
-        //                   SearchStrategy.STANDARD, SearchMethod.FIRST_IMPROVING, tenure1);
     }
 }
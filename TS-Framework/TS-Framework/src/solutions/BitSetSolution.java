@@ -0,0 +1,352 @@
+package solutions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A solution over the integer domain {0, ..., n-1} which, besides the list of
+ * elements inherited from {@link Solution}, keeps a bitset of the elements in
+ * the solution and the position of each element in the list. This makes
+ * {@link #add(Integer)}, {@link #contains(Object)} and {@link #indexOf(Object)}
+ * O(1), and allows copying a solution in place without allocation (see
+ * {@link #copyFrom(Solution)}). Removals shift the following elements, as in
+ * an {@link java.util.ArrayList}, and cost O(|sol|).
+ *
+ * Elements are kept unique, so adding an element already in the solution has
+ * no effect. Removals keep the order of the remaining elements, hence the
+ * iteration order of the list is the insertion order, and ties between moves
+ * ranked by their position in the list are broken as with a plain
+ * {@link Solution}. An iteration in ascending order of the elements is given
+ * by {@link #nextElement(int)}.
+ */
+@SuppressWarnings("serial")
+public class BitSetSolution extends Solution<Integer> {
+
+	/**
+	 * Dimension of the domain.
+	 */
+	private final int domainSize;
+
+	/**
+	 * The bitset of the elements in the solution.
+	 */
+	private final long[] words;
+
+	/**
+	 * The position of each element in the list, or -1 if it is not in the
+	 * solution.
+	 */
+	private final int[] position;
+
+	/**
+	 * Creates an empty solution for a domain of a given size.
+	 *
+	 * @param domainSize
+	 *            the number of elements of the domain.
+	 */
+	public BitSetSolution(int domainSize) {
+		super();
+		this.domainSize = domainSize;
+		this.words = new long[(domainSize + 63) >>> 6];
+		this.position = new int[domainSize];
+		Arrays.fill(position, -1);
+	}
+
+	/**
+	 * Creates a copy of a solution.
+	 *
+	 * @param sol
+	 *            the solution being copied.
+	 */
+	public BitSetSolution(BitSetSolution sol) {
+		this(sol.domainSize);
+		copyFrom(sol);
+	}
+
+	/**
+	 * Gives the size of the domain of the solution elements.
+	 *
+	 * @return the number of elements of the domain.
+	 */
+	public int getDomainSize() {
+		return domainSize;
+	}
+
+	/**
+	 * Checks whether an element belongs to the solution.
+	 *
+	 * @param elem
+	 *            the element being checked.
+	 * @return true if the element is in the solution.
+	 */
+	public boolean contains(int elem) {
+		return (words[elem >>> 6] & (1L << elem)) != 0;
+	}
+
+	/**
+	 * Gives the smallest element of the solution greater than or equal to a
+	 * given element, allowing the solution to be iterated in ascending order
+	 * with no allocation:
+	 * <code>for (int e = sol.nextElement(0); e >= 0; e = sol.nextElement(e + 1))</code>
+	 *
+	 * @param from
+	 *            the element from which the search starts.
+	 * @return the next element of the solution, or -1 if there is none.
+	 */
+	public int nextElement(int from) {
+		if (from >= domainSize)
+			return -1;
+		int w = from >>> 6;
+		long word = words[w] & (-1L << from);
+		while (true) {
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == words.length)
+				return -1;
+			word = words[w];
+		}
+	}
+
+	/**
+	 * Gives the bitset of the elements in the solution. Bit (e % 64) of word
+	 * (e / 64) is set if element e belongs to the solution. The array must not
+	 * be modified.
+	 *
+	 * @return the words of the bitset.
+	 */
+	public long[] getWords() {
+		return words;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Integer))
+			return false;
+		int elem = (Integer) o;
+		return elem >= 0 && elem < domainSize && contains(elem);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return contains(o) ? position[(Integer) o] : -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean add(Integer elem) {
+		if (contains(elem.intValue()))
+			return false;
+		position[elem] = size();
+		words[elem >>> 6] |= 1L << elem;
+		return super.add(elem);
+	}
+
+	@Override
+	public void add(int index, Integer elem) {
+		if (contains(elem.intValue()))
+			return;
+		super.add(index, elem);
+		words[elem >>> 6] |= 1L << elem;
+		reindex(index);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Integer> c) {
+		boolean modified = false;
+		for (Integer elem : c) {
+			modified |= add(elem);
+		}
+		return modified;
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Integer> c) {
+		boolean modified = false;
+		for (Integer elem : c) {
+			if (!contains(elem.intValue())) {
+				add(index++, elem);
+				modified = true;
+			}
+		}
+		return modified;
+	}
+
+	@Override
+	public Integer remove(int index) {
+		Integer elem = super.remove(index);
+		position[elem] = -1;
+		words[elem >>> 6] &= ~(1L << elem);
+		reindex(index);
+		return elem;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o))
+			return false;
+		remove(position[(Integer) o]);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc} The element may already be in the solution at another
+	 * position only as the first half of a swap, such as the ones done by
+	 * {@link Collections#swap(List, int, int)}, {@link Collections#reverse(List)}
+	 * and {@link Collections#shuffle(List)}: the element is then briefly in
+	 * both positions, and its former position must be overwritten next.
+	 */
+	@Override
+	public Integer set(int index, Integer elem) {
+		Integer old = super.set(index, elem);
+		if (old.equals(elem))
+			return old;
+		if (position[old] == index) {
+			position[old] = -1;
+			words[old >>> 6] &= ~(1L << old);
+		}
+		position[elem] = index;
+		words[elem >>> 6] |= 1L << elem;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size(); i++) {
+			position[get(i)] = -1;
+		}
+		Arrays.fill(words, 0L);
+		super.clear();
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		boolean modified = super.removeAll(c);
+		rebuild();
+		return modified;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		boolean modified = super.retainAll(c);
+		rebuild();
+		return modified;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Integer> filter) {
+		boolean modified = super.removeIf(filter);
+		rebuild();
+		return modified;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the operator maps two elements to the same one, or an
+	 *             element out of the domain; the solution is then left
+	 *             unchanged.
+	 */
+	@Override
+	public void replaceAll(UnaryOperator<Integer> operator) {
+		Integer[] previous = toArray(new Integer[size()]);
+		super.replaceAll(operator);
+		Arrays.fill(words, 0L);
+		for (int i = 0; i < size(); i++) {
+			Integer elem = get(i);
+			if (elem == null || elem < 0 || elem >= domainSize || contains(elem.intValue())) {
+				for (int j = 0; j < previous.length; j++) {
+					super.set(j, previous[j]);
+				}
+				rebuild();
+				throw new IllegalArgumentException("Element " + elem + " is repeated or out of the domain");
+			}
+			words[elem >>> 6] |= 1L << elem;
+		}
+		rebuild();
+	}
+
+	@Override
+	public void sort(Comparator<? super Integer> c) {
+		super.sort(c);
+		reindex(0);
+	}
+
+	@Override
+	public List<Integer> subList(int fromIndex, int toIndex) {
+		return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+	}
+
+	/**
+	 * Creates a copy of this solution which shares no state with it.
+	 *
+	 * @return the copy of the solution.
+	 */
+	@Override
+	public BitSetSolution clone() {
+		return new BitSetSolution(this);
+	}
+
+	/**
+	 * {@inheritDoc} When the other solution is also a BitSetSolution over the
+	 * same domain, its bitset is copied in place, and no memory is allocated
+	 * as long as this solution has enough capacity.
+	 */
+	@Override
+	public void copyFrom(Solution<Integer> sol) {
+		if (sol == this)
+			return;
+		if (sol instanceof BitSetSolution && ((BitSetSolution) sol).domainSize == domainSize) {
+			BitSetSolution other = (BitSetSolution) sol;
+			for (int i = 0; i < size(); i++) {
+				position[get(i)] = -1;
+			}
+			super.clear();
+			for (int i = 0; i < other.size(); i++) {
+				Integer elem = other.get(i);
+				position[elem] = i;
+				super.add(elem);
+			}
+			System.arraycopy(other.words, 0, words, 0, words.length);
+			cost = other.cost;
+		} else {
+			super.copyFrom(sol);
+		}
+	}
+
+	/**
+	 * Updates the position of the elements of the list from a given index on.
+	 *
+	 * @param from
+	 *            the first index whose element may have been moved.
+	 */
+	private void reindex(int from) {
+		for (int i = from; i < size(); i++) {
+			position[get(i)] = i;
+		}
+	}
+
+	/**
+	 * Rebuilds the bitset and the positions after a bulk modification of the
+	 * list.
+	 */
+	private void rebuild() {
+		Arrays.fill(words, 0L);
+		Arrays.fill(position, -1);
+		for (int i = 0; i < size(); i++) {
+			int elem = get(i);
+			words[elem >>> 6] |= 1L << elem;
+			position[elem] = i;
+		}
+	}
+
+}
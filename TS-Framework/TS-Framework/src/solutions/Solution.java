@@ -16,6 +16,20 @@ public class Solution<E> extends ArrayList<E> {
 		cost = sol.cost;
 	}
 
+	/**
+	 * Overwrites this solution with the elements and cost of another one.
+	 * 
+	 * @param sol
+	 *            the solution being copied.
+	 */
+	public void copyFrom(Solution<E> sol) {
+		if (sol == this)
+			return;
+		clear();
+		addAll(sol);
+		cost = sol.cost;
+	}
+
 	@Override
 	public String toString() {
 		return "Solution: cost=[" + cost + "], size=[" + this.size() + "], elements=" + super.toString();
@@ -0,0 +1,63 @@
+package problems.qbf;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the {@link QBFKernels}, with the preferred vector
+ * species of the platform (e.g., 4 doubles with AVX2 and 8 with AVX-512).
+ * Dot products keep one partial sum per lane, which are reduced at the end,
+ * and the remaining terms are added by the scalar loop.
+ *
+ * This class requires the {@code jdk.incubator.vector} module, both to be
+ * compiled and to be run ({@code --add-modules jdk.incubator.vector}). It is
+ * loaded reflectively by {@link QBFKernels#get()}, so the rest of the
+ * framework neither depends on it nor on the module.
+ */
+public class VectorQBFKernels extends QBFKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Constructor for the VectorQBFKernels class.
+	 */
+	public VectorQBFKernels() {
+	}
+
+	@Override
+	public double dot(double acc, double[] a, int aOff, double[] b, int bOff, int len) {
+		final int step = SPECIES.length();
+		final int bound = SPECIES.loopBound(len);
+		int k = 0;
+		if (bound > 0) {
+			DoubleVector sum = DoubleVector.zero(SPECIES);
+			for (; k < bound; k += step) {
+				DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + k);
+				DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + k);
+				sum = va.fma(vb, sum);
+			}
+			acc += sum.reduceLanes(VectorOperators.ADD);
+		}
+		for (; k < len; k++) {
+			acc += b[bOff + k] * a[aOff + k];
+		}
+		return acc;
+	}
+
+	@Override
+	public void axpy(double alpha, double[] a, int aOff, double[] y, int yOff, int len) {
+		final int step = SPECIES.length();
+		final int bound = SPECIES.loopBound(len);
+		int k = 0;
+		for (; k < bound; k += step) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + k);
+			DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOff + k);
+			va.mul(alpha).add(vy).intoArray(y, yOff + k);
+		}
+		for (; k < len; k++) {
+			y[yOff + k] += alpha * a[aOff + k];
+		}
+	}
+
+}